@@ -1,5 +1,9 @@
 package app;
 
+import structures.IntArray;
+import structures.MappedIntArray;
+import structures.SparseIntArray;
+
 /**
  * This class holds a (name, array of integer values) pair for an array. 
  * The name is a sequence of one or more letters. 
@@ -19,6 +23,18 @@ public class Array {
 	 */
 	public int[] values;
 	
+	/**
+	 * Alternative storage for arrays too large for a dense int[] - if this is not null,
+	 * values is null and all items are held here instead
+	 */
+	public IntArray storage;
+	
+	/**
+	 * Arrays longer than this are not allocated as a dense int[], but start out
+	 * sparse, and are moved off the heap if they fill up
+	 */
+	public static final int DENSE_LIMIT = 1 << 24;
+	
 	/**
 	 * Initializes with name, and sets values to null.
 	 * 
@@ -27,22 +43,87 @@ public class Array {
 	public Array(String name) {
         this.name = name;
         values = null;
+        storage = null;
     }
 	
+	/**
+	 * Allocates storage for the given number of items, all zero. Arrays of up to
+	 * DENSE_LIMIT items get a dense int[], longer ones get sparse storage.
+	 * 
+	 * @param length Number of items
+	 */
+	public void allocate(int length) {
+		if (length <= DENSE_LIMIT) {
+			values = new int[length];
+			storage = null;
+		} else {
+			values = null;
+			storage = new SparseIntArray(length);
+		}
+	}
+	
+	/**
+	 * Returns the item at an index.
+	 * 
+	 * @param index Index of item
+	 * @return Value of item
+	 * @throws ArrayIndexOutOfBoundsException If index is out of range
+	 */
+	public int get(int index) {
+		return storage == null ? values[index] : storage.get(index);
+	}
+	
+	/**
+	 * Sets the item at an index. Sparse storage that fills up past the point where it
+	 * saves memory is converted to (off-heap) dense storage.
+	 * 
+	 * @param index Index of item
+	 * @param value New value of item
+	 * @throws ArrayIndexOutOfBoundsException If index is out of range
+	 */
+	public void set(int index, int value) {
+		if (storage == null) {
+			values[index] = value;
+			return;
+		}
+		storage.set(index, value);
+		if (storage instanceof SparseIntArray) {
+			SparseIntArray sparse = (SparseIntArray)storage;
+			// a sparse entry costs about 4 times as much as a dense one
+			if (sparse.size() > sparse.length() / 4) {
+				MappedIntArray dense = new MappedIntArray(sparse.length());
+				sparse.copyTo(dense);
+				storage = dense;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of items.
+	 * 
+	 * @return Length of array, 0 if not allocated
+	 */
+	public int length() {
+		if (storage != null) {
+			return storage.length();
+		}
+		return values == null ? 0 : values.length;
+	}
+	
 	/* (non-Javadoc)
 	 * @see java.lang.Object#toString()
 	 */
 	public String toString() {
-		if (values == null || values.length == 0) {
+		if (length() == 0) {
 			return name + "=[ ]";
 		}
 		StringBuilder sb = new StringBuilder();
 		sb.append(name);
 		sb.append("=[");
-		sb.append(values[0]);
-		for (int i=1; i < values.length; i++) {
+		sb.append(get(0));
+		for (int i=1; i < length(); i++) {
 			sb.append(',');
-			sb.append(values[i]);
+			sb.append(get(i));
 		}
 		sb.append(']');
 		return sb.toString();
@@ -0,0 +1,130 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class evaluates batches of independent expressions, each with its own
+ * variables and arrays, spreading parsing and evaluation across the worker threads
+ * of a (work-stealing) fork-join pool. Results are stored by position in the batch,
+ * so they are the same whatever the scheduling.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class BatchEvaluator {
+
+	/**
+	 * Batches are split in halves down to this many jobs per task
+	 */
+	private static final int GRAIN = 16;
+
+	/**
+	 * An expression with its variables and arrays.
+	 */
+	public static class Job {
+
+		/**
+		 * The expression
+		 */
+		public String expr;
+
+		/**
+		 * Variables, with values
+		 */
+		public ArrayList<Variable> vars;
+
+		/**
+		 * Arrays, with values
+		 */
+		public ArrayList<Array> arrays;
+
+		/**
+		 * Initializes with expression, variables and arrays.
+		 *
+		 * @param expr The expression
+		 * @param vars The variables array list, with values for all variables in the expression
+		 * @param arrays The arrays array list, with values for all array items
+		 */
+		public Job(String expr, ArrayList<Variable> vars, ArrayList<Array> arrays) {
+			this.expr = expr;
+			this.vars = vars;
+			this.arrays = arrays;
+		}
+	}
+
+	// prevent instantiation
+	private BatchEvaluator() { }
+
+	/**
+	 * Evaluates a batch of jobs in the common fork-join pool.
+	 *
+	 * @param jobs Jobs to evaluate
+	 * @return Value of each job's expression, in the same order as the jobs
+	 * @throws IllegalArgumentException If any expression is malformed
+	 */
+	public static float[] evaluateAll(List<Job> jobs) {
+		return evaluateAll(jobs, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates a batch of jobs in the given fork-join pool.
+	 *
+	 * @param jobs Jobs to evaluate
+	 * @param pool Pool to run in
+	 * @return Value of each job's expression, in the same order as the jobs
+	 * @throws IllegalArgumentException If any expression is malformed
+	 */
+	public static float[] evaluateAll(List<Job> jobs, ForkJoinPool pool) {
+		return evaluateAll(jobs, pool, null);
+	}
+
+	/**
+	 * Evaluates a batch of jobs in the given fork-join pool, taking compiled expressions
+	 * from a cache, so that expressions repeated in the batch (or seen in earlier batches)
+	 * are not parsed again.
+	 *
+	 * @param jobs Jobs to evaluate
+	 * @param pool Pool to run in
+	 * @param cache Cache of compiled expressions, or null to compile every expression
+	 * @return Value of each job's expression, in the same order as the jobs
+	 * @throws IllegalArgumentException If any expression is malformed
+	 */
+	public static float[] evaluateAll(List<Job> jobs, ForkJoinPool pool, ExpressionCache cache) {
+		float[] results = new float[jobs.size()];
+		pool.invoke(new Task(jobs, results, cache, 0, jobs.size()));
+		return results;
+	}
+
+	private static class Task extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		List<Job> jobs;
+		float[] results;
+		ExpressionCache cache;
+		int from, to;
+
+		Task(List<Job> jobs, float[] results, ExpressionCache cache, int from, int to) {
+			this.jobs = jobs;
+			this.results = results;
+			this.cache = cache;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int mid = (from + to) >>> 1;
+				invokeAll(new Task(jobs, results, cache, from, mid), new Task(jobs, results, cache, mid, to));
+				return;
+			}
+			for (int i = from; i < to; i++) {
+				Job job = jobs.get(i);
+				CompiledExpression ce = cache == null ? CompiledExpression.compile(job.expr) : cache.get(job.expr);
+				results[i] = ce.evaluate(job.vars, job.arrays);
+			}
+		}
+	}
+}
@@ -0,0 +1,327 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import structures.ArrayStack;
+import structures.FloatStack;
+import structures.IntStack;
+
+/**
+ * This class holds an expression compiled to a postfix program, evaluated by a loop
+ * over the instructions with an explicit value stack. Compiling and evaluating take
+ * time linear in the size of the expression, and neither one recurses, so there is
+ * no limit on the length or nesting depth of an expression other than memory.
+ *
+ * A subexpression that is shared in the (optimized) expression DAG is evaluated once;
+ * its value is saved in a temporary and loaded again wherever else it is used.
+ *
+ * The program refers to variables and arrays by name, so a compiled expression can be
+ * evaluated with any number of different variable and array lists.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class CompiledExpression {
+
+	/**
+	 * Instruction opcodes, in the low 4 bits of an instruction. The rest of the
+	 * instruction is an argument: index of constant, variable, array or temporary.
+	 */
+	private static final int PUSH_CONST = 0;
+	private static final int LOAD_VAR = 1;
+	private static final int LOAD_ITEM = 2;   // pops subscript
+	private static final int NEG = 3;
+	private static final int ADD = 4;
+	private static final int SUB = 5;
+	private static final int MUL = 6;
+	private static final int DIV = 7;
+	private static final int STORE_TEMP = 8;  // copies top of stack, does not pop
+	private static final int LOAD_TEMP = 9;
+	private static final int OP_BITS = 4;
+
+	/**
+	 * Instructions
+	 */
+	private int[] code;
+
+	/**
+	 * Constants, variable names and array names referred to by instructions
+	 */
+	private float[] constants;
+	private String[] varNames;
+	private String[] arrayNames;
+
+	/**
+	 * Number of temporaries, and maximum depth of value stack
+	 */
+	private int temps;
+	private int maxDepth;
+
+	private CompiledExpression() { }
+
+	/**
+	 * Parses, optimizes and compiles an expression.
+	 *
+	 * @param expr The expression
+	 * @return Compiled expression
+	 * @throws IllegalArgumentException If the expression is malformed
+	 */
+	public static CompiledExpression compile(String expr) {
+		return compile(new Optimizer().optimize(Expression.parse(expr)));
+	}
+
+	/**
+	 * Compiles a parsed (and possibly optimized) expression.
+	 *
+	 * @param root Root of expression
+	 * @return Compiled expression
+	 */
+	public static CompiledExpression compile(ExprNode root) {
+		return compile(root, null);
+	}
+
+	/**
+	 * Compiles a parsed expression, except for one subexpression whose value is an
+	 * input to the program, given when it is run. The input subexpression is not
+	 * compiled (or even visited).
+	 *
+	 * @param root Root of expression
+	 * @param input Subexpression to be taken as an input, or null
+	 * @return Compiled expression
+	 */
+	static CompiledExpression compile(ExprNode root, ExprNode input) {
+		IdentityHashMap<ExprNode, Integer> refs = countReferences(root, input);
+		CompiledExpression ce = new CompiledExpression();
+		int[] code = new int[16];
+		int length = 0;
+		ArrayList<Float> constants = new ArrayList<Float>();
+		HashMap<String, Integer> varIndex = new HashMap<String, Integer>();
+		HashMap<String, Integer> arrayIndex = new HashMap<String, Integer>();
+		IdentityHashMap<ExprNode, Integer> tempIndex = new IdentityHashMap<ExprNode, Integer>();
+		if (input != null) {
+			tempIndex.put(input, ce.temps++);  // temporary 0 holds the input
+		}
+		int depth = 0;
+
+		// post order walk: state 0 = not started, 1 = left operand done, 2 = both done
+		ArrayStack<ExprNode> nodes = new ArrayStack<ExprNode>();
+		IntStack states = new IntStack();
+		nodes.push(root);
+		states.push(0);
+		while (!nodes.isEmpty()) {
+			ExprNode node = nodes.peek();
+			int state = states.pop();
+			int ins;
+			if (state == 0 && tempIndex.containsKey(node)) {
+				ins = LOAD_TEMP | tempIndex.get(node) << OP_BITS;
+				depth++;
+			} else if (node.kind == ExprNode.CONST) {
+				ins = PUSH_CONST | constants.size() << OP_BITS;
+				constants.add(node.value);
+				depth++;
+			} else if (node.kind == ExprNode.VAR) {
+				ins = LOAD_VAR | index(varIndex, node.name) << OP_BITS;
+				depth++;
+			} else if (state == 0 || (state == 1 && node.isBinary())) {
+				states.push(state + 1);
+				nodes.push(state == 0 ? node.left : node.right);
+				states.push(0);
+				continue;
+			} else if (node.kind == ExprNode.ARRAY) {
+				ins = LOAD_ITEM | index(arrayIndex, node.name) << OP_BITS;
+			} else {
+				ins = node.kind;  // NEG, ADD, SUB, MUL, DIV have the same codes as node kinds
+				if (node.isBinary()) {
+					depth--;
+				}
+			}
+			ce.maxDepth = Math.max(ce.maxDepth, depth);
+			nodes.pop();
+
+			if (length + 2 > code.length) {
+				code = Arrays.copyOf(code, code.length * 2);
+			}
+			code[length++] = ins;
+			if ((ins & ((1 << OP_BITS) - 1)) != LOAD_TEMP && refs.get(node) > 1
+					&& node.kind != ExprNode.CONST && node.kind != ExprNode.VAR) {
+				tempIndex.put(node, ce.temps);
+				code[length++] = STORE_TEMP | ce.temps++ << OP_BITS;
+			}
+		}
+
+		ce.code = Arrays.copyOf(code, length);
+		ce.constants = new float[constants.size()];
+		for (int i = 0; i < ce.constants.length; i++) {
+			ce.constants[i] = constants.get(i);
+		}
+		ce.varNames = names(varIndex);
+		ce.arrayNames = names(arrayIndex);
+		return ce;
+	}
+
+	/**
+	 * Evaluates the expression.
+	 *
+	 * @param vars The variables array list, with values for all variables in the expression
+	 * @param arrays The arrays array list, with values for all array items
+	 * @return Result of evaluation
+	 */
+	public float evaluate(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		return evaluate(vars, arrays, 0);
+	}
+
+	float evaluate(ArrayList<Variable> vars, ArrayList<Array> arrays, float input) {
+		float[] values = new float[varNames.length];
+		for (int i = 0; i < values.length; i++) {
+			Variable v = Expression.findVariable(varNames[i], vars);
+			values[i] = v == null ? 0 : v.value;
+		}
+		Array[] arrs = new Array[arrayNames.length];
+		for (int i = 0; i < arrs.length; i++) {
+			arrs[i] = Expression.findArray(arrayNames[i], arrays);
+		}
+		return run(values, arrs, input);
+	}
+
+	/**
+	 * Evaluates the expression with variable values and arrays given in the order of
+	 * variableNames and arrayNames. This skips looking up variables and arrays by name.
+	 *
+	 * @param values Values of variables, in the order of variableNames
+	 * @param arrs Arrays, in the order of arrayNames (null items evaluate to 0)
+	 * @return Result of evaluation
+	 */
+	public float run(float[] values, Array[] arrs) {
+		return run(values, arrs, 0);
+	}
+
+	float run(float[] values, Array[] arrs, float input) {
+		FloatStack stack = new FloatStack(maxDepth);
+		float[] temp = temps == 0 ? null : new float[temps];
+		if (temp != null) {
+			temp[0] = input;  // harmless if there is no input
+		}
+		for (int pc = 0; pc < code.length; pc++) {
+			int ins = code[pc];
+			int arg = ins >>> OP_BITS;
+			switch (ins & ((1 << OP_BITS) - 1)) {
+			case PUSH_CONST:
+				stack.push(constants[arg]);
+				break;
+			case LOAD_VAR:
+				stack.push(values[arg]);
+				break;
+			case LOAD_ITEM:
+				int index = (int)stack.pop();
+				stack.push(arrs[arg] == null ? 0 : arrs[arg].get(index));
+				break;
+			case NEG:
+				stack.push(0 - stack.pop());
+				break;
+			case STORE_TEMP:
+				temp[arg] = stack.peek();
+				break;
+			case LOAD_TEMP:
+				stack.push(temp[arg]);
+				break;
+			default:
+				float b = stack.pop();
+				stack.push(ExprNode.apply(ins, stack.pop(), b));
+				break;
+			}
+		}
+		return stack.pop();
+	}
+
+	/**
+	 * Returns the names of the simple variables in the expression.
+	 *
+	 * @return Variable names, each once
+	 */
+	public String[] variableNames() {
+		return varNames.clone();
+	}
+
+	/**
+	 * Returns the names of the arrays in the expression.
+	 *
+	 * @return Array names, each once
+	 */
+	public String[] arrayNames() {
+		return arrayNames.clone();
+	}
+
+	/**
+	 * Populates the vars list with simple variables, and arrays list with arrays
+	 * in the expression, with zero values, like Expression.makeVariableLists but without
+	 * going through the expression text again. Names already in the lists are not added.
+	 *
+	 * @param vars The variables array list - already created by the caller
+	 * @param arrays The arrays array list - already created by the caller
+	 */
+	public void makeVariableLists(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		for (String name : varNames) {
+			if (Expression.findVariable(name, vars) == null) {
+				vars.add(new Variable(name));
+			}
+		}
+		for (String name : arrayNames) {
+			if (Expression.findArray(name, arrays) == null) {
+				arrays.add(new Array(name));
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of instructions in the compiled program.
+	 *
+	 * @return Program length
+	 */
+	public int length() {
+		return code.length;
+	}
+
+	/**
+	 * Counts, for every node, the number of parents it has in the DAG (1 for the root),
+	 * not going below the input node.
+	 */
+	private static IdentityHashMap<ExprNode, Integer> countReferences(ExprNode root, ExprNode input) {
+		IdentityHashMap<ExprNode, Integer> refs = new IdentityHashMap<ExprNode, Integer>();
+		ArrayStack<ExprNode> stack = new ArrayStack<ExprNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ExprNode node = stack.pop();
+			Integer count = refs.get(node);
+			refs.put(node, count == null ? 1 : count + 1);
+			if (count == null && node != input) {  // first visit, so visit operands
+				if (node.right != null) {
+					stack.push(node.right);
+				}
+				if (node.left != null) {
+					stack.push(node.left);
+				}
+			}
+		}
+		return refs;
+	}
+
+	private static int index(HashMap<String, Integer> names, String name) {
+		Integer i = names.get(name);
+		if (i == null) {
+			i = names.size();
+			names.put(name, i);
+		}
+		return i;
+	}
+
+	private static String[] names(HashMap<String, Integer> index) {
+		String[] names = new String[index.size()];
+		for (String name : index.keySet()) {
+			names[index.get(name)] = name;
+		}
+		return names;
+	}
+}
@@ -1,16 +1,44 @@
 package app;
 
-import java.io.File;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Scanner;
 
 public class Evaluator {
 
 	/**
+	 * Runs interactively, or in batch mode with:
+	 * <pre>
+	 *     java app.Evaluator -batch [-values file] [-out file] [-cache n] [expressions file]
+	 * </pre>
+	 * In batch mode, expressions are read one per line from the expressions file (or
+	 * standard input if it is omitted or "-"). A line may name its own values file after
+	 * a semicolon, as in <tt>a + A[b] ; values.txt</tt>; otherwise the -values file, if
+	 * any, is used. Each values file is loaded once, however many expressions use it.
+	 * A line whose values file cannot be loaded gets an error result, as does a line
+	 * with a malformed expression, and the batch goes on.
+	 * One result per line is written to the -out file (or standard output), and the
+	 * throughput and latency percentiles are printed to standard error at the end.
+	 * 
 	 * @param args
 	 */
 	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("-batch")) {
+			batch(args);
+			return;
+		}
 		Scanner sc = new Scanner(System.in);
 		while (true) {
 			System.out.print("\nEnter the expression, or hit return to quit => ");
@@ -25,11 +53,140 @@ public class Evaluator {
 			System.out.print("Enter variable values file name, or hit return if no variables => ");
 			String fname = sc.nextLine();
 			if (fname.length() != 0) {
-				Scanner scfile = new Scanner(new File(fname));
-				Expression.loadVariableValues(scfile, vars, arrays);
+				ValuesLoader.load(fname, vars, arrays);
 			}
-			System.out.println("Value of expression = " + Expression.evaluate(expr,vars,arrays));
+			System.out.println("Value of expression = " + CompiledExpression.compile(expr).evaluate(vars, arrays));
 		}
 		sc.close();
 	}
+	
+	/**
+	 * Variables and arrays loaded from one values file, by name
+	 */
+	private static class Values {
+		HashMap<String, Variable> vars = new HashMap<String, Variable>();
+		HashMap<String, Array> arrays = new HashMap<String, Array>();
+		
+		Values(String fileName) throws IOException {
+			ArrayList<Variable> varList = new ArrayList<Variable>();
+			ArrayList<Array> arrayList = new ArrayList<Array>();
+			if (fileName != null) {
+				ValuesLoader.loadAll(fileName, varList, arrayList);
+			}
+			for (Variable v : varList) {
+				vars.put(v.name, v);
+			}
+			for (Array a : arrayList) {
+				arrays.put(a.name, a);
+			}
+		}
+		
+		float evaluate(CompiledExpression ce) {
+			String[] varNames = ce.variableNames();
+			float[] values = new float[varNames.length];
+			for (int i = 0; i < values.length; i++) {
+				Variable v = vars.get(varNames[i]);
+				values[i] = v == null ? 0 : v.value;
+			}
+			String[] arrayNames = ce.arrayNames();
+			Array[] arrs = new Array[arrayNames.length];
+			for (int i = 0; i < arrs.length; i++) {
+				arrs[i] = arrays.get(arrayNames[i]);
+			}
+			return ce.run(values, arrs);
+		}
+	}
+	
+	private static void batch(String[] args) throws IOException {
+		String defaultValues = null;
+		String outFile = null;
+		String inFile = "-";
+		int cacheSize = 10000;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-values") && i + 1 < args.length) {
+				defaultValues = args[++i];
+			} else if (args[i].equals("-out") && i + 1 < args.length) {
+				outFile = args[++i];
+			} else if (args[i].equals("-cache") && i + 1 < args.length) {
+				cacheSize = Integer.parseInt(args[++i]);
+			} else {
+				inFile = args[i];
+			}
+		}
+		
+		ExpressionCache cache = new ExpressionCache(cacheSize);
+		HashMap<String, Values> loaded = new HashMap<String, Values>();
+		long[] latencies = new long[1024];
+		int count = 0, errors = 0;
+		
+		InputStream in = inFile.equals("-") ? System.in : new FileInputStream(inFile);
+		OutputStream out = outFile == null ? System.out : new FileOutputStream(outFile);
+		long start = System.nanoTime();
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 1 << 16);
+			 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				String expr = line;
+				String valuesFile = defaultValues;
+				int semi = line.indexOf(';');
+				if (semi >= 0) {
+					expr = line.substring(0, semi);
+					valuesFile = line.substring(semi + 1).trim();
+				}
+				
+				// values files are loaded once, and not counted in expression latency
+				String key = valuesFile == null ? "" : valuesFile;
+				Values values = loaded.get(key);
+				String result = null;
+				if (valuesFile != null && valuesFile.isEmpty()) {
+					result = "error: no values file name after ';'";
+					errors++;
+				} else if (values == null) {
+					try {
+						values = new Values(valuesFile);
+						loaded.put(key, values);
+					} catch (IOException e) {  // only this line fails, like a bad expression
+						result = "error: values file \"" + valuesFile + "\": " + 
+								(e instanceof NoSuchFileException ? "no such file" : e.getMessage());
+						errors++;
+					}
+				}
+				
+				long t = System.nanoTime();
+				if (result == null) {
+					try {
+						result = Float.toString(values.evaluate(cache.get(expr)));
+					} catch (RuntimeException e) {
+						result = "error: " + e.getMessage();
+						errors++;
+					}
+				}
+				if (count == latencies.length) {
+					latencies = Arrays.copyOf(latencies, count * 2);
+				}
+				latencies[count++] = System.nanoTime() - t;
+				bw.write(result);
+				bw.newLine();
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		
+		Arrays.sort(latencies, 0, count);
+		System.err.printf("%d expressions (%d errors), %d values files, %.3f s, %.0f expressions/s%n",
+				count, errors, loaded.size(), seconds, count / seconds);
+		if (count > 0) {
+			System.err.printf("latency us: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+					percentile(latencies, count, 50), percentile(latencies, count, 90),
+					percentile(latencies, count, 99), latencies[count - 1] / 1e3);
+		}
+		System.err.println("cache: " + cache);
+	}
+	
+	private static double percentile(long[] sorted, int count, int p) {
+		int i = (int)Math.ceil(p / 100.0 * count) - 1;
+		return sorted[Math.max(i, 0)] / 1e3;
+	}
 }
@@ -0,0 +1,183 @@
+package app;
+
+/**
+ * This class implements a node of a parsed expression. A node is either a leaf
+ * (constant, simple variable) or an operator with one or two operands. An array
+ * reference is an operator whose single operand is the subscript expression.
+ *
+ * After optimization the nodes form a DAG rather than a tree, since identical
+ * subexpressions are represented by a single shared node. Nodes must therefore
+ * not be modified once they have been built.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ExprNode {
+
+	/**
+	 * Node kinds
+	 */
+	public static final int CONST = 0;
+	public static final int VAR = 1;
+	public static final int ARRAY = 2;
+	public static final int NEG = 3;
+	public static final int ADD = 4;
+	public static final int SUB = 5;
+	public static final int MUL = 6;
+	public static final int DIV = 7;
+
+	/**
+	 * Kind of node, one of the constants above
+	 */
+	public int kind;
+
+	/**
+	 * Value, for a CONST node
+	 */
+	public float value;
+
+	/**
+	 * Name, for a VAR or ARRAY node
+	 */
+	public String name;
+
+	/**
+	 * Left operand, or the only operand for NEG and ARRAY (subscript) nodes. Like
+	 * Expression.evaluate, NEG computes 0 - operand, so it never yields -0.0.
+	 */
+	public ExprNode left;
+
+	/**
+	 * Right operand, for binary operator nodes
+	 */
+	public ExprNode right;
+
+	/**
+	 * Initializes with all fields.
+	 *
+	 * @param kind Kind of node
+	 * @param value Constant value (ignored unless kind is CONST)
+	 * @param name Variable or array name (null unless kind is VAR or ARRAY)
+	 * @param left Left (or only) operand
+	 * @param right Right operand
+	 */
+	public ExprNode(int kind, float value, String name, ExprNode left, ExprNode right) {
+		this.kind = kind;
+		this.value = value;
+		this.name = name;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Makes a constant node.
+	 *
+	 * @param value Value of constant
+	 * @return New node
+	 */
+	public static ExprNode constant(float value) {
+		return new ExprNode(CONST, value, null, null, null);
+	}
+
+	/**
+	 * Makes a simple variable node.
+	 *
+	 * @param name Variable name
+	 * @return New node
+	 */
+	public static ExprNode variable(String name) {
+		return new ExprNode(VAR, 0, name, null, null);
+	}
+
+	/**
+	 * Makes an array item node.
+	 *
+	 * @param name Array name
+	 * @param subscript Subscript expression
+	 * @return New node
+	 */
+	public static ExprNode array(String name, ExprNode subscript) {
+		return new ExprNode(ARRAY, 0, name, subscript, null);
+	}
+
+	/**
+	 * Makes an operator node.
+	 *
+	 * @param kind NEG, ADD, SUB, MUL or DIV
+	 * @param left Left (or only) operand
+	 * @param right Right operand, null for NEG
+	 * @return New node
+	 */
+	public static ExprNode operator(int kind, ExprNode left, ExprNode right) {
+		return new ExprNode(kind, 0, null, left, right);
+	}
+
+	/**
+	 * Tells whether this node is a binary operator.
+	 *
+	 * @return True if kind is ADD, SUB, MUL or DIV
+	 */
+	public boolean isBinary() {
+		return kind >= ADD;
+	}
+
+	/**
+	 * Applies a binary operator to operand values. The arithmetic is done in float,
+	 * exactly as in Expression.evaluate.
+	 *
+	 * @param kind ADD, SUB, MUL or DIV
+	 * @param a Left operand value
+	 * @param b Right operand value
+	 * @return Result
+	 */
+	public static float apply(int kind, float a, float b) {
+		switch (kind) {
+		case ADD: return a + b;
+		case SUB: return a - b;
+		case MUL: return a * b;
+		default: return a / b;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		switch (kind) {
+		case CONST: return value == (int)value ? Integer.toString((int)value) : Float.toString(value);
+		case VAR: return name;
+		case ARRAY: return name + "[" + left + "]";
+		case NEG: return "-(" + left + ")";
+		default:
+			return "(" + left + " " + "+-*/".charAt(kind - ADD) + " " + right + ")";
+		}
+	}
+
+	/**
+	 * Two nodes are equal if they are of the same kind, have the same value and name, and
+	 * have the SAME (identical, not just equal) operands. This shallow equality is what
+	 * identifies common subexpressions once operands have already been shared.
+	 *
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object o) {
+		if (o == null || !(o instanceof ExprNode)) {
+			return false;
+		}
+		ExprNode n = (ExprNode)o;
+		return kind == n.kind &&
+				Float.floatToIntBits(value) == Float.floatToIntBits(n.value) &&
+				(name == null ? n.name == null : name.equals(n.name)) &&
+				left == n.left && right == n.right;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		int h = kind * 31 + Float.floatToIntBits(value);
+		h = h * 31 + (name == null ? 0 : name.hashCode());
+		h = h * 31 + System.identityHashCode(left);
+		return h * 31 + System.identityHashCode(right);
+	}
+}
@@ -4,7 +4,8 @@ import java.io.*;
 import java.util.*;
 import java.util.regex.*;
 
-import structures.Stack;
+import structures.ArrayStack;
+import structures.IntStack;
 
 public class Expression {
 
@@ -81,14 +82,14 @@ public class Expression {
                 vars.get(vari).value = num;
             } else { // array symbol
             	arr = arrays.get(arri);
-            	arr.values = new int[num];
+            	arr.allocate(num);
                 // following are (index,val) pairs
                 while (st.hasMoreTokens()) {
                     tok = st.nextToken();
                     StringTokenizer stt = new StringTokenizer(tok," (,)");
                     int index = Integer.parseInt(stt.nextToken());
                     int val = Integer.parseInt(stt.nextToken());
-                    arr.values[index] = val;              
+                    arr.set(index, val);
                 }
             }
         }
@@ -107,10 +108,10 @@ public class Expression {
     	if(expr.isEmpty())
     		return 0;
     	StringTokenizer tk = new StringTokenizer(expr, delims);  // Tokenize the expression
-    	Stack<String> values = new Stack<String>();  // Stack for the values (arrays, variables, and straight constants)
-    	Stack<Integer> valueIndexes = new Stack<Integer>();  //Stack for value indexes
-    	Stack<String> operators = new Stack<String>();  //Stack for operators
-    	Stack<Integer> operatorIndexes= new Stack<Integer>();  //Stack for operator indexes
+    	ArrayStack<String> values = new ArrayStack<String>();  // Stack for the values (arrays, variables, and straight constants)
+    	IntStack valueIndexes = new IntStack();  //Stack for value indexes
+    	ArrayStack<String> operators = new ArrayStack<String>();  //Stack for operators
+    	IntStack operatorIndexes= new IntStack();  //Stack for operator indexes
     	
     	for(int i = 0; i < expr.length(); i++) {
     		char ch = expr.charAt(i);
@@ -164,7 +165,7 @@ public class Expression {
     			for(int j = 0; j < arrays.size(); j++) {
     				if(arrays.get(j).name.equals(arr)) {
     					arrIndex = (int)evaluate(expr.substring(index + arr.length() + 1, i), vars, arrays);
-    					arrVal = arrays.get(j).values[(int)arrIndex];
+    					arrVal = arrays.get(j).get(arrIndex);
     					return evaluate(expr.substring(0, index) + arrVal + expr.substring(i + 1), vars, arrays);
     				}
     				
@@ -257,4 +258,162 @@ public class Expression {
     	
     	return 0;
     }
+    
+    /**
+     * Operator stack markers used by parse, in addition to the ExprNode operator kinds.
+     */
+    private static final int LPAREN = -1;
+    private static final int LBRACKET = -2;
+    
+    /**
+     * Parses the expression into a tree of ExprNode instances, using the same grammar as
+     * the evaluate method: integer constants, variables, array items, parentheses, binary
+     * + - * / with the usual precedence (left associative), and unary minus.
+     * An empty expression is parsed as the constant 0.
+     * 
+     * @param expr The expression
+     * @return Root of the expression tree
+     * @throws IllegalArgumentException If the expression is malformed
+     */
+    public static ExprNode 
+    parse(String expr) {
+    	ArrayStack<ExprNode> operands = new ArrayStack<ExprNode>();
+    	IntStack operators = new IntStack();
+    	ArrayStack<String> arrayNames = new ArrayStack<String>();
+    	boolean expectOperand = true;  // true at the start, and after an operator or opening bracket
+    	
+    	int i = 0;
+    	while(i < expr.length()) {
+    		char ch = expr.charAt(i);
+    		if(ch == ' ' || ch == '\t') {
+    			i++;
+    		}
+    		else if(Character.isDigit(ch)) {
+    			int j = i;
+    			while(j < expr.length() && (Character.isDigit(expr.charAt(j)) || expr.charAt(j) == '.'))
+    				j++;
+    			operands.push(ExprNode.constant(Float.parseFloat(expr.substring(i, j))));
+    			expectOperand = false;
+    			i = j;
+    		}
+    		else if(Character.isLetter(ch)) {
+    			int j = i;
+    			while(j < expr.length() && Character.isLetter(expr.charAt(j)))
+    				j++;
+    			String name = expr.substring(i, j);
+    			while(j < expr.length() && (expr.charAt(j) == ' ' || expr.charAt(j) == '\t'))
+    				j++;
+    			if(j < expr.length() && expr.charAt(j) == '[') {
+    				arrayNames.push(name);
+    				operators.push(LBRACKET);
+    				expectOperand = true;
+    				j++;
+    			}
+    			else {
+    				operands.push(ExprNode.variable(name));
+    				expectOperand = false;
+    			}
+    			i = j;
+    		}
+    		else if(ch == '(') {
+    			operators.push(LPAREN);
+    			expectOperand = true;
+    			i++;
+    		}
+    		else if(ch == ')' || ch == ']') {
+    			int marker = ch == ')' ? LPAREN : LBRACKET;
+    			while(!operators.isEmpty() && operators.peek() >= 0)
+    				reduce(operands, operators.pop(), expr);
+    			if(operators.isEmpty() || operators.pop() != marker)
+    				throw new IllegalArgumentException("unbalanced '" + ch + "' in " + expr);
+    			if(marker == LBRACKET)
+    				operands.push(ExprNode.array(arrayNames.pop(), popOperand(operands, expr)));
+    			expectOperand = false;
+    			i++;
+    		}
+    		else if(ch == '-' && expectOperand) {
+    			operators.push(ExprNode.NEG);  // prefix, so nothing to reduce yet
+    			i++;
+    		}
+    		else if(ch == '+' || ch == '-' || ch == '*' || ch == '/') {
+    			int op = ch == '+' ? ExprNode.ADD : ch == '-' ? ExprNode.SUB : ch == '*' ? ExprNode.MUL : ExprNode.DIV;
+    			while(!operators.isEmpty() && operators.peek() >= 0 && precedence(operators.peek()) >= precedence(op))
+    				reduce(operands, operators.pop(), expr);
+    			operators.push(op);
+    			expectOperand = true;
+    			i++;
+    		}
+    		else {
+    			throw new IllegalArgumentException("unexpected character '" + ch + "' in " + expr);
+    		}
+    	}
+    	
+    	while(!operators.isEmpty()) {
+    		int op = operators.pop();
+    		if(op < 0)
+    			throw new IllegalArgumentException("unclosed bracket in " + expr);
+    		reduce(operands, op, expr);
+    	}
+    	if(operands.isEmpty())
+    		return ExprNode.constant(0);
+    	ExprNode root = operands.pop();
+    	if(!operands.isEmpty())
+    		throw new IllegalArgumentException("missing operator in " + expr);
+    	return root;
+    }
+    
+    private static int precedence(int op) {
+    	if(op == ExprNode.NEG)
+    		return 3;
+    	return op == ExprNode.MUL || op == ExprNode.DIV ? 2 : 1;
+    }
+    
+    private static void reduce(ArrayStack<ExprNode> operands, int op, String expr) {
+    	if(op == ExprNode.NEG) {
+    		operands.push(ExprNode.operator(op, popOperand(operands, expr), null));
+    	}
+    	else {
+    		ExprNode right = popOperand(operands, expr);
+    		ExprNode left = popOperand(operands, expr);
+    		operands.push(ExprNode.operator(op, left, right));
+    	}
+    }
+    
+    private static ExprNode popOperand(ArrayStack<ExprNode> operands, String expr) {
+    	if(operands.isEmpty())
+    		throw new IllegalArgumentException("missing operand in " + expr);
+    	return operands.pop();
+    }
+    
+    /**
+     * Evaluates a parsed (and possibly optimized) expression. A node that is shared by
+     * several parents, as after common subexpression elimination, is evaluated only once.
+     * The expression is compiled first, so for repeated evaluation it is better to keep
+     * the CompiledExpression.
+     * 
+     * @param root Root of the expression, as returned by parse or Optimizer.optimize
+     * @param vars The variables array list, with values for all variables in the expression
+     * @param arrays The arrays array list, with values for all array items
+     * @return Result of evaluation
+     */
+    public static float 
+    evaluate(ExprNode root, ArrayList<Variable> vars, ArrayList<Array> arrays) {
+    	return CompiledExpression.compile(root).evaluate(vars, arrays);
+    }
+    
+    static Variable findVariable(String name, ArrayList<Variable> vars) {
+    	for(int i = 0; i < vars.size(); i++) {
+    		if(vars.get(i).name.equals(name))
+    			return vars.get(i);
+    	}
+    	return null;
+    }
+    
+    static Array findArray(String name, ArrayList<Array> arrays) {
+    	for(int i = 0; i < arrays.size(); i++) {
+    		if(arrays.get(i).name.equals(name))
+    			return arrays.get(i);
+    	}
+    	return null;
+    }
 }
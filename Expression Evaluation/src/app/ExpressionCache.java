@@ -0,0 +1,180 @@
+package app;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This class is a bounded, thread-safe cache of compiled expressions, keyed by the
+ * expression text with spaces and tabs removed where they do not separate tokens
+ * (the evaluator ignores them there anyway).
+ * When the cache is full, the least recently used expression is evicted. Hits,
+ * misses and evictions are counted.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ExpressionCache {
+
+	/**
+	 * Compiled expressions, in least to most recently used order
+	 */
+	private LinkedHashMap<String, CompiledExpression> map;
+
+	/**
+	 * Maximum number of expressions held
+	 */
+	private int capacity;
+
+	/**
+	 * Counts, guarded by this
+	 */
+	private long hits, misses, evictions;
+
+	/**
+	 * Initializes an empty cache.
+	 *
+	 * @param capacity Maximum number of expressions to hold
+	 */
+	public ExpressionCache(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		}
+		this.capacity = capacity;
+		map = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+				if (size() > ExpressionCache.this.capacity) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns the compiled form of an expression, compiling it only if it is not
+	 * already in the cache. Compilation is done outside the lock, so other threads
+	 * are not held up by it.
+	 *
+	 * @param expr The expression
+	 * @return Compiled expression
+	 * @throws IllegalArgumentException If the expression is malformed
+	 */
+	public CompiledExpression get(String expr) {
+		String key = normalize(expr);
+		synchronized (this) {
+			CompiledExpression ce = map.get(key);
+			if (ce != null) {
+				hits++;
+				return ce;
+			}
+			misses++;
+		}
+		CompiledExpression ce = CompiledExpression.compile(key);
+		synchronized (this) {
+			CompiledExpression raced = map.putIfAbsent(key, ce);
+			return raced != null ? raced : ce;
+		}
+	}
+
+	/**
+	 * Removes all expressions. Counts are not reset.
+	 */
+	public synchronized void clear() {
+		map.clear();
+	}
+
+	/**
+	 * Returns the number of expressions in the cache.
+	 *
+	 * @return Number of expressions
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+
+	/**
+	 * Returns the number of lookups that found the expression in the cache.
+	 *
+	 * @return Number of hits
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of lookups that had to compile the expression.
+	 *
+	 * @return Number of misses
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the number of expressions evicted to make room for others.
+	 *
+	 * @return Number of evictions
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the fraction of lookups that were hits.
+	 *
+	 * @return Hit rate, 0 if there have been no lookups
+	 */
+	public synchronized double hitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double)hits / total;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		return "size=" + map.size() + "/" + capacity + ", hits=" + hits + ", misses=" + misses +
+				", evictions=" + evictions;
+	}
+
+	/**
+	 * Removes spaces and tabs from an expression, except that a run of them between
+	 * two operand characters (letters, digits, '.') is kept as a single space, so that
+	 * two adjacent operands such as "a b" stay malformed instead of becoming "ab".
+	 *
+	 * @param expr The expression
+	 * @return Expression with only the whitespace that separates tokens
+	 */
+	static String normalize(String expr) {
+		int i = 0;
+		while (i < expr.length() && expr.charAt(i) != ' ' && expr.charAt(i) != '\t') {
+			i++;
+		}
+		if (i == expr.length()) {
+			return expr;  // nothing to remove, the common case
+		}
+		StringBuilder sb = new StringBuilder(expr.length());
+		boolean space = false;  // whitespace seen since the last character kept
+		for (int j = 0; j < expr.length(); j++) {
+			char ch = expr.charAt(j);
+			if (ch == ' ' || ch == '\t') {
+				space = true;
+				continue;
+			}
+			if (space && sb.length() > 0 && isOperandChar(sb.charAt(sb.length() - 1)) &&
+					isOperandChar(ch)) {
+				sb.append(' ');
+			}
+			sb.append(ch);
+			space = false;
+		}
+		return sb.toString();
+	}
+
+	private static boolean isOperandChar(char ch) {
+		return Character.isLetterOrDigit(ch) || ch == '.';
+	}
+}
@@ -0,0 +1,222 @@
+package app;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import structures.ArrayStack;
+
+/**
+ * This class implements an optimization pass over parsed expressions. It folds
+ * constant subexpressions, simplifies algebraic identities, and eliminates common
+ * subexpressions (including repeated array items such as A[i*2]) by making identical
+ * subexpressions share a single node. The result is a DAG that evaluates to exactly
+ * the same float value as the input tree.
+ *
+ * Identities are applied only where they are exact in float arithmetic, so for
+ * instance x*0 is NOT folded to 0 (x may be an infinity from a division by zero),
+ * and x+0 is NOT folded to x (x may be -0.0, and -0.0 + 0 is 0.0, which flips the
+ * sign of an infinity it later divides). Only x+(-0.0), x-0 and x*1, x/1 are
+ * dropped, and 0-x becomes -x only because NEG itself computes 0 - x.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class Optimizer {
+
+	/**
+	 * Number of nodes in the input expression
+	 */
+	public int nodesBefore;
+
+	/**
+	 * Number of distinct nodes in the optimized expression
+	 */
+	public int nodesAfter;
+
+	/**
+	 * Number of operators evaluated at optimization time
+	 */
+	public int constantsFolded;
+
+	/**
+	 * Number of algebraic identities applied
+	 */
+	public int identitiesSimplified;
+
+	/**
+	 * Number of subexpressions replaced by an existing identical node
+	 */
+	public int subexpressionsShared;
+
+	/**
+	 * Canonical instance of every node built so far
+	 */
+	private HashMap<ExprNode, ExprNode> canonical;
+
+	/**
+	 * Optimizes an expression. The input is not changed. Counts from any previous
+	 * call are reset.
+	 *
+	 * @param root Root of expression, as returned by Expression.parse
+	 * @return Root of optimized expression
+	 */
+	public ExprNode optimize(ExprNode root) {
+		canonical = new HashMap<ExprNode, ExprNode>();
+		constantsFolded = 0;
+		identitiesSimplified = 0;
+		subexpressionsShared = 0;
+		ExprNode result = rewrite(root);
+		nodesAfter = countNodes(result);
+		canonical = null;
+		return result;
+	}
+
+	/**
+	 * Returns a one line summary of the last optimization.
+	 *
+	 * @return Report of node counts before and after optimization
+	 */
+	public String report() {
+		return "nodes before=" + nodesBefore + ", after=" + nodesAfter +
+				" (" + constantsFolded + " folded, " + identitiesSimplified + " simplified, " +
+				subexpressionsShared + " shared)";
+	}
+
+	/**
+	 * Rewrites all nodes bottom up, with an explicit stack rather than recursion so
+	 * that there is no limit on the depth of the expression.
+	 */
+	private ExprNode rewrite(ExprNode root) {
+		IdentityHashMap<ExprNode, ExprNode> done = new IdentityHashMap<ExprNode, ExprNode>();
+		ArrayStack<ExprNode> stack = new ArrayStack<ExprNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ExprNode node = stack.peek();
+			if (done.containsKey(node)) {
+				stack.pop();
+				continue;
+			}
+			boolean ready = true;
+			if (node.right != null && !done.containsKey(node.right)) {
+				stack.push(node.right);
+				ready = false;
+			}
+			if (node.left != null && !done.containsKey(node.left)) {
+				stack.push(node.left);
+				ready = false;
+			}
+			if (ready) {
+				stack.pop();
+				done.put(node, rewrite(node, done.get(node.left), done.get(node.right)));
+			}
+		}
+		nodesBefore = done.size();
+		return done.get(root);
+	}
+
+	/**
+	 * Rewrites one node, given its already rewritten operands.
+	 */
+	private ExprNode rewrite(ExprNode node, ExprNode left, ExprNode right) {
+		switch(node.kind) {
+		case ExprNode.CONST:
+			return intern(ExprNode.constant(node.value));
+		case ExprNode.VAR:
+			return intern(ExprNode.variable(node.name));
+		case ExprNode.ARRAY:
+			return intern(ExprNode.array(node.name, left));
+		default:
+			return make(node.kind, left, right);
+		}
+	}
+
+	/**
+	 * Builds the canonical node for an operator applied to already optimized operands,
+	 * folding and simplifying where possible.
+	 */
+	private ExprNode make(int kind, ExprNode a, ExprNode b) {
+		if(kind == ExprNode.NEG) {
+			if(a.kind == ExprNode.CONST) {
+				constantsFolded++;
+				return intern(ExprNode.constant(0 - a.value));
+			}
+			// -(-x) is NOT x: with x = -0.0 it is 0 - (0 - -0.0) = 0.0
+			return intern(ExprNode.operator(kind, a, null));
+		}
+
+		if(a.kind == ExprNode.CONST && b.kind == ExprNode.CONST) {
+			constantsFolded++;
+			return intern(ExprNode.constant(ExprNode.apply(kind, a.value, b.value)));
+		}
+
+		switch(kind) {
+		case ExprNode.ADD:
+			// only -0.0 is an additive identity; x + 0.0 turns x = -0.0 into 0.0.
+			// x + -y is NOT x - y either: with x = -0.0, y = 0.0 they are 0.0 and -0.0
+			if(isConst(a, -0.0f)) return simplified(b);
+			if(isConst(b, -0.0f)) return simplified(a);
+			break;
+		case ExprNode.SUB:
+			// x - 0.0 is exact, but x - -0.0 = x + 0.0 is not
+			if(isConst(b, 0.0f)) return simplified(a);
+			// 0.0 - x is exactly what NEG computes; -0.0 - x differs at x = 0.0
+			if(isConst(a, 0.0f)) return simplified(make(ExprNode.NEG, b, null));
+			break;
+		case ExprNode.MUL:
+			if(isConst(a, 1)) return simplified(b);
+			if(isConst(b, 1)) return simplified(a);
+			break;
+		case ExprNode.DIV:
+			if(isConst(b, 1)) return simplified(a);
+			break;
+		default:
+			break;
+		}
+		return intern(ExprNode.operator(kind, a, b));
+	}
+
+	private ExprNode simplified(ExprNode result) {
+		identitiesSimplified++;
+		return result;
+	}
+
+	/**
+	 * Compares bit patterns, so 0.0 and -0.0 are different constants here.
+	 */
+	private static boolean isConst(ExprNode node, float value) {
+		return node.kind == ExprNode.CONST &&
+				Float.floatToIntBits(node.value) == Float.floatToIntBits(value);
+	}
+
+	/**
+	 * Returns the existing node equal to this one, or registers this one as canonical.
+	 * Since operands are always canonical already, shallow equality is enough.
+	 */
+	private ExprNode intern(ExprNode node) {
+		ExprNode existing = canonical.get(node);
+		if(existing != null) {
+			if(node.kind != ExprNode.CONST && node.kind != ExprNode.VAR)
+				subexpressionsShared++;
+			return existing;
+		}
+		canonical.put(node, node);
+		return node;
+	}
+
+	/**
+	 * Counts the distinct nodes reachable from a node.
+	 */
+	static int countNodes(ExprNode root) {
+		IdentityHashMap<ExprNode, ExprNode> seen = new IdentityHashMap<ExprNode, ExprNode>();
+		ArrayStack<ExprNode> stack = new ArrayStack<ExprNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ExprNode node = stack.pop();
+			if (node != null && seen.put(node, node) == null) {
+				stack.push(node.left);
+				stack.push(node.right);
+			}
+		}
+		return seen.size();
+	}
+}
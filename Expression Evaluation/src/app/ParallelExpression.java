@@ -0,0 +1,197 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import structures.ArrayStack;
+
+/**
+ * This class evaluates a single very large expression with fork-join parallelism.
+ * The expression is cut at "split" operators, whose two operands both have at least
+ * threshold nodes; the two operands of a split are evaluated in parallel. Everything
+ * between splits is a region, compiled to a CompiledExpression that takes the value
+ * of the one split below it (there can be at most one) as an input.
+ *
+ * Each operator is applied to the same operand values as in sequential evaluation,
+ * so the result is exactly the same, however the work is scheduled.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ParallelExpression {
+
+	/**
+	 * Default minimum size, in nodes, of a subexpression evaluated as a separate task
+	 */
+	public static final int DEFAULT_THRESHOLD = 1 << 14;
+
+	/**
+	 * A region: either a split, or a compiled program with at most one split below it
+	 */
+	private static class Region {
+		int kind;                   // for a split, operator of split node
+		Region left, right;         // for a split, regions of the operands
+		CompiledExpression program; // otherwise, program for the region
+		Region input;               // and region whose value is the program's input, or null
+	}
+
+	/**
+	 * Root region
+	 */
+	private Region root;
+
+	/**
+	 * Number of splits, i.e. points where evaluation forks
+	 */
+	private int splits;
+
+	/**
+	 * Prepares an expression for parallel evaluation, with the default threshold.
+	 *
+	 * @param root Root of parsed (and possibly optimized) expression
+	 */
+	public ParallelExpression(ExprNode root) {
+		this(root, DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * Prepares an expression for parallel evaluation.
+	 *
+	 * @param root Root of parsed (and possibly optimized) expression
+	 * @param threshold Minimum size, in nodes, of both operands of an operator for them
+	 *        to be evaluated in parallel
+	 */
+	public ParallelExpression(ExprNode root, int threshold) {
+		IdentityHashMap<ExprNode, Integer> sizes = sizes(root);
+		this.root = region(root, sizes, threshold);
+	}
+
+	/**
+	 * Returns the number of points at which evaluation forks.
+	 *
+	 * @return Number of splits
+	 */
+	public int splits() {
+		return splits;
+	}
+
+	/**
+	 * Evaluates the expression in the common fork-join pool.
+	 *
+	 * @param vars The variables array list, with values for all variables in the expression
+	 * @param arrays The arrays array list, with values for all array items
+	 * @return Result of evaluation
+	 */
+	public float evaluate(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		return evaluate(vars, arrays, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates the expression in the given fork-join pool.
+	 *
+	 * @param vars The variables array list, with values for all variables in the expression
+	 * @param arrays The arrays array list, with values for all array items
+	 * @param pool Pool to run in
+	 * @return Result of evaluation
+	 */
+	public float evaluate(ArrayList<Variable> vars, ArrayList<Array> arrays, ForkJoinPool pool) {
+		return pool.invoke(new Task(root, vars, arrays));
+	}
+
+	private static class Task extends RecursiveTask<Float> {
+		private static final long serialVersionUID = 1L;
+
+		Region region;
+		ArrayList<Variable> vars;
+		ArrayList<Array> arrays;
+
+		Task(Region region, ArrayList<Variable> vars, ArrayList<Array> arrays) {
+			this.region = region;
+			this.vars = vars;
+			this.arrays = arrays;
+		}
+
+		protected Float compute() {
+			if (region.program == null) {
+				Task left = new Task(region.left, vars, arrays);
+				left.fork();
+				float b = new Task(region.right, vars, arrays).compute();
+				float a = left.join();
+				return ExprNode.apply(region.kind, a, b);
+			}
+			float input = region.input == null ? 0 : new Task(region.input, vars, arrays).compute();
+			return region.program.evaluate(vars, arrays, input);
+		}
+	}
+
+	/**
+	 * Builds the region rooted at a node. Recursion is only from a split to its operands,
+	 * or from a region to the split below it, so its depth is bounded by the number of
+	 * splits on a path, which is at most the size of the expression over threshold.
+	 */
+	private Region region(ExprNode node, IdentityHashMap<ExprNode, Integer> sizes, int threshold) {
+		Region r = new Region();
+		if (node.isBinary() && sizes.get(node.left) >= threshold && sizes.get(node.right) >= threshold) {
+			splits++;
+			r.kind = node.kind;
+			r.left = region(node.left, sizes, threshold);
+			r.right = region(node.right, sizes, threshold);
+			return r;
+		}
+
+		// follow the (only) large operand down to the next split, if any
+		ExprNode split = null;
+		ExprNode ptr = node;
+		while (ptr != null && split == null) {
+			ExprNode big = null;
+			if (ptr.left != null && sizes.get(ptr.left) >= threshold) {
+				big = ptr.left;
+			} else if (ptr.right != null && sizes.get(ptr.right) >= threshold) {
+				big = ptr.right;
+			}
+			if (big != null && big.isBinary() && sizes.get(big.left) >= threshold && sizes.get(big.right) >= threshold) {
+				split = big;
+			}
+			ptr = big;
+		}
+		r.program = CompiledExpression.compile(node, split);
+		r.input = split == null ? null : region(split, sizes, threshold);
+		return r;
+	}
+
+	/**
+	 * Computes the size of every subexpression, counting shared nodes once per use
+	 * (since each use is evaluated separately once the expression is split), and
+	 * saturating at Integer.MAX_VALUE.
+	 */
+	private static IdentityHashMap<ExprNode, Integer> sizes(ExprNode root) {
+		IdentityHashMap<ExprNode, Integer> sizes = new IdentityHashMap<ExprNode, Integer>();
+		ArrayStack<ExprNode> stack = new ArrayStack<ExprNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ExprNode node = stack.peek();
+			if (sizes.containsKey(node)) {
+				stack.pop();
+				continue;
+			}
+			boolean ready = true;
+			if (node.right != null && !sizes.containsKey(node.right)) {
+				stack.push(node.right);
+				ready = false;
+			}
+			if (node.left != null && !sizes.containsKey(node.left)) {
+				stack.push(node.left);
+				ready = false;
+			}
+			if (ready) {
+				stack.pop();
+				long size = 1L + (node.left == null ? 0 : sizes.get(node.left))
+						+ (node.right == null ? 0 : sizes.get(node.right));
+				sizes.put(node, (int)Math.min(size, Integer.MAX_VALUE));
+			}
+		}
+		return sizes;
+	}
+}
@@ -0,0 +1,458 @@
+package app;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+import structures.ArrayStack;
+
+/**
+ * This class keeps many expressions ("formulas") evaluated as variable and array
+ * values change, spreadsheet style. Every distinct subexpression, across all formulas,
+ * is held once in a cell with its current value. Each cell knows the cells that use
+ * it, and the evaluator knows which cells read each variable and each array item.
+ * A change therefore recomputes only the cells that depend on it, in order of
+ * height, so that every cell is recomputed at most once per change (or batch of
+ * changes), and propagation stops wherever a value turns out not to have changed.
+ *
+ * An array item cell depends on the single item its subscript currently selects;
+ * when the subscript value changes, the dependency moves to the new item. If the
+ * subscript goes out of range, the cell keeps its old item and records the error,
+ * and so do the cells that use it, until the subscript is back in range; all other
+ * cells are still recomputed.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ReactiveEvaluator {
+
+	/**
+	 * A subexpression with its current value
+	 */
+	private static class Cell {
+		ExprNode node;        // canonical node: operands are the nodes of the operand cells
+		Cell left, right;
+		float value;
+		int height;           // 0 for leaves, else 1 + max height of operands
+		ArrayList<Cell> parents = new ArrayList<Cell>();
+		boolean queued;
+		int item;             // for ARRAY cells, index of the array item currently read
+		RuntimeException error;  // why the cell (or an operand) could not be computed, or null
+
+		Cell(ExprNode node, Cell left, Cell right) {
+			this.node = node;
+			this.left = left;
+			this.right = right;
+			height = 1 + Math.max(left == null ? -1 : left.height, right == null ? -1 : right.height);
+		}
+	}
+
+	/**
+	 * Variables and arrays by name
+	 */
+	private HashMap<String, Variable> vars;
+	private HashMap<String, Array> arrays;
+
+	/**
+	 * All cells, keyed by canonical node
+	 */
+	private HashMap<ExprNode, Cell> cells;
+
+	/**
+	 * Cells that read each variable, and each array item
+	 */
+	private HashMap<String, ArrayList<Cell>> varReaders;
+	private HashMap<String, HashMap<Integer, ArrayList<Cell>>> itemReaders;
+
+	/**
+	 * Root cell of each formula
+	 */
+	private ArrayList<Cell> formulas;
+
+	/**
+	 * Cells waiting to be recomputed, bucketed by height
+	 */
+	private ArrayList<ArrayList<Cell>> pending;
+
+	/**
+	 * True between beginBatch and endBatch
+	 */
+	private boolean batching;
+
+	/**
+	 * Number of cells recomputed by the last change or batch, and in total
+	 */
+	private int lastRecomputed;
+	private long totalRecomputed;
+
+	/**
+	 * Initializes with the variables and arrays that formulas may refer to. Values are
+	 * from then on changed through this evaluator, not directly.
+	 *
+	 * @param vars Variables, with values
+	 * @param arrays Arrays, with values
+	 */
+	public ReactiveEvaluator(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		this.vars = new HashMap<String, Variable>();
+		for (Variable v : vars) {
+			this.vars.putIfAbsent(v.name, v);
+		}
+		this.arrays = new HashMap<String, Array>();
+		for (Array a : arrays) {
+			this.arrays.putIfAbsent(a.name, a);
+		}
+		cells = new HashMap<ExprNode, Cell>();
+		varReaders = new HashMap<String, ArrayList<Cell>>();
+		itemReaders = new HashMap<String, HashMap<Integer, ArrayList<Cell>>>();
+		formulas = new ArrayList<Cell>();
+		pending = new ArrayList<ArrayList<Cell>>();
+	}
+
+	/**
+	 * Adds a formula, and evaluates it. Subexpressions it has in common with formulas
+	 * added earlier are shared, not evaluated again.
+	 *
+	 * @param expr The expression
+	 * @return Formula number, to be used with value
+	 */
+	public int add(String expr) {
+		ExprNode root = new Optimizer().optimize(Expression.parse(expr));
+		formulas.add(cellFor(root));
+		return formulas.size() - 1;
+	}
+
+	/**
+	 * Returns the current value of a formula.
+	 *
+	 * @param formula Formula number, as returned by add
+	 * @return Value of formula
+	 * @throws RuntimeException The exception (such as ArrayIndexOutOfBoundsException) 
+	 * 			that kept the formula from being computed after the last change
+	 */
+	public float value(int formula) {
+		Cell cell = formulas.get(formula);
+		if (cell.error != null) {
+			throw cell.error;
+		}
+		return cell.value;
+	}
+
+	/**
+	 * Returns the number of formulas.
+	 *
+	 * @return Number of formulas added
+	 */
+	public int size() {
+		return formulas.size();
+	}
+
+	/**
+	 * Returns the number of distinct subexpressions held for all formulas.
+	 *
+	 * @return Number of cells
+	 */
+	public int cellCount() {
+		return cells.size();
+	}
+
+	/**
+	 * Sets the value of a variable, and recomputes the formulas that depend on it
+	 * (or, inside a batch, defers that to endBatch).
+	 *
+	 * @param name Variable name
+	 * @param value New value
+	 * @throws ArrayIndexOutOfBoundsException If the change puts a subscript out of range.
+	 * 			The change is kept, and all formulas that do not depend on that
+	 * 			subscript are still recomputed.
+	 */
+	public void setVariable(String name, int value) {
+		Variable v = vars.get(name);
+		if (v == null) {
+			v = new Variable(name);
+			vars.put(name, v);
+		}
+		if (v.value == value) {
+			return;
+		}
+		v.value = value;
+		ArrayList<Cell> readers = varReaders.get(name);
+		if (readers != null) {
+			for (Cell c : readers) {
+				enqueue(c);
+			}
+		}
+		propagateUnlessBatching();
+	}
+
+	/**
+	 * Sets the value of an array item, and recomputes the formulas that depend on it
+	 * (or, inside a batch, defers that to endBatch).
+	 *
+	 * @param name Array name
+	 * @param index Index of item
+	 * @param value New value
+	 * @throws IllegalArgumentException If there is no array with this name
+	 * @throws ArrayIndexOutOfBoundsException If index is out of range (nothing is 
+	 * 			changed then), or the change puts a subscript out of range (as for 
+	 * 			setVariable)
+	 */
+	public void setArrayItem(String name, int index, int value) {
+		Array arr = arrays.get(name);
+		if (arr == null) {
+			throw new IllegalArgumentException("no array named " + name);
+		}
+		if (arr.get(index) == value) {
+			return;
+		}
+		arr.set(index, value);
+		HashMap<Integer, ArrayList<Cell>> items = itemReaders.get(name);
+		ArrayList<Cell> readers = items == null ? null : items.get(index);
+		if (readers != null) {
+			for (Cell c : readers) {
+				enqueue(c);
+			}
+		}
+		propagateUnlessBatching();
+	}
+
+	/**
+	 * Starts a batch of changes. Formulas are not recomputed until endBatch, and then
+	 * every affected cell is recomputed only once for the whole batch.
+	 */
+	public void beginBatch() {
+		batching = true;
+	}
+
+	/**
+	 * Ends a batch of changes, and recomputes the formulas affected by them.
+	 *
+	 * @return Number of cells recomputed
+	 * @throws ArrayIndexOutOfBoundsException If the changes put a subscript out of 
+	 * 			range (as for setVariable)
+	 */
+	public int endBatch() {
+		batching = false;
+		propagate();
+		return lastRecomputed;
+	}
+
+	/**
+	 * Returns the number of cells recomputed for the last change, or last batch.
+	 *
+	 * @return Number of cells recomputed
+	 */
+	public int lastRecomputed() {
+		return lastRecomputed;
+	}
+
+	/**
+	 * Returns the number of cells recomputed for all changes so far (not counting
+	 * the initial evaluation of formulas).
+	 *
+	 * @return Number of cells recomputed
+	 */
+	public long totalRecomputed() {
+		return totalRecomputed;
+	}
+
+	/**
+	 * Returns the cell for the root of an optimized expression, making cells for all
+	 * its nodes that do not have one yet. Nodes are visited bottom up with an explicit
+	 * stack, so there is no limit on the depth of the expression.
+	 */
+	private Cell cellFor(ExprNode root) {
+		IdentityHashMap<ExprNode, Cell> done = new IdentityHashMap<ExprNode, Cell>();
+		ArrayStack<ExprNode> stack = new ArrayStack<ExprNode>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			ExprNode node = stack.peek();
+			if (done.containsKey(node)) {
+				stack.pop();
+				continue;
+			}
+			boolean ready = true;
+			if (node.right != null && !done.containsKey(node.right)) {
+				stack.push(node.right);
+				ready = false;
+			}
+			if (node.left != null && !done.containsKey(node.left)) {
+				stack.push(node.left);
+				ready = false;
+			}
+			if (ready) {
+				stack.pop();
+				done.put(node, cellFor(node, done.get(node.left), done.get(node.right)));
+			}
+		}
+		return done.get(root);
+	}
+
+	private Cell cellFor(ExprNode node, Cell left, Cell right) {
+		ExprNode key = new ExprNode(node.kind, node.value, node.name,
+				left == null ? null : left.node, right == null ? null : right.node);
+		Cell cell = cells.get(key);
+		if (cell == null) {
+			cell = new Cell(key, left, right);
+			if (node.kind == ExprNode.ARRAY) {
+				cell.item = (int)left.value;
+			}
+			// computed before the cell is published, so that a subscript out of range
+			// leaves no half made cell behind for a later formula to pick up
+			cell.error = operandError(cell);
+			if (cell.error == null) {
+				cell.value = compute(cell);
+			}
+			cells.put(key, cell);
+			if (left != null) {
+				left.parents.add(cell);
+			}
+			if (right != null) {
+				right.parents.add(cell);
+			}
+			if (node.kind == ExprNode.VAR) {
+				readers(varReaders, node.name).add(cell);
+			}
+			if (node.kind == ExprNode.ARRAY) {
+				itemReaders(node.name, cell.item).add(cell);
+			}
+		}
+		return cell;
+	}
+
+	private float compute(Cell cell) {
+		ExprNode node = cell.node;
+		switch (node.kind) {
+		case ExprNode.CONST:
+			return node.value;
+		case ExprNode.VAR:
+			Variable v = vars.get(node.name);
+			return v == null ? 0 : v.value;
+		case ExprNode.ARRAY:
+			Array arr = arrays.get(node.name);
+			return arr == null ? 0 : arr.get(cell.item);
+		case ExprNode.NEG:
+			return 0 - cell.left.value;
+		default:
+			return ExprNode.apply(node.kind, cell.left.value, cell.right.value);
+		}
+	}
+
+	private void enqueue(Cell cell) {
+		if (cell.queued) {
+			return;
+		}
+		cell.queued = true;
+		while (pending.size() <= cell.height) {
+			pending.add(new ArrayList<Cell>());
+		}
+		pending.get(cell.height).add(cell);
+	}
+
+	private void propagateUnlessBatching() {
+		if (!batching) {
+			propagate();
+		}
+	}
+
+	/**
+	 * Recomputes pending cells from the lowest height up. A cell's operands are always
+	 * lower than the cell, so they are final by the time the cell is recomputed.
+	 * A cell that cannot be computed (a subscript out of range) records the error and
+	 * passes it on to the cells that use it, and the rest of the pending cells are
+	 * recomputed as usual. The first error of a cell that did not already have one is
+	 * then thrown.
+	 */
+	private void propagate() {
+		int count = 0;
+		RuntimeException first = null;
+		for (int h = 0; h < pending.size(); h++) {
+			ArrayList<Cell> level = pending.get(h);
+			for (int i = 0; i < level.size(); i++) {
+				Cell cell = level.get(i);
+				cell.queued = false;
+				RuntimeException error = operandError(cell);
+				float value = 0;
+				if (error == null) {
+					try {
+						value = recompute(cell);
+					} catch (RuntimeException e) {
+						error = e;
+						if (first == null && cell.error == null) {  // newly failed
+							first = e;
+						}
+					}
+				}
+				count++;
+				if (error != null) {
+					if (cell.error != error) {
+						cell.error = error;
+						for (Cell p : cell.parents) {
+							enqueue(p);
+						}
+					}
+				} else if (cell.error != null || 
+						Float.floatToIntBits(value) != Float.floatToIntBits(cell.value)) {
+					cell.error = null;
+					cell.value = value;
+					for (Cell p : cell.parents) {
+						enqueue(p);
+					}
+				}
+			}
+			level.clear();
+		}
+		lastRecomputed = count;
+		totalRecomputed += count;
+		if (first != null) {
+			throw first;
+		}
+	}
+
+	/**
+	 * Computes a pending cell. An array item cell whose subscript has changed reads
+	 * the new item first, and only then moves its dependency to it, so a subscript out
+	 * of range leaves the cell reading its old item.
+	 */
+	private float recompute(Cell cell) {
+		if (cell.node.kind != ExprNode.ARRAY || (int)cell.left.value == cell.item) {
+			return compute(cell);
+		}
+		int item = (int)cell.left.value;
+		Array arr = arrays.get(cell.node.name);
+		float value = arr == null ? 0 : arr.get(item);
+		itemReaders(cell.node.name, cell.item).remove(cell);
+		cell.item = item;
+		itemReaders(cell.node.name, cell.item).add(cell);
+		return value;
+	}
+
+	private static RuntimeException operandError(Cell cell) {
+		if (cell.left != null && cell.left.error != null) {
+			return cell.left.error;
+		}
+		return cell.right == null ? null : cell.right.error;
+	}
+
+	private static ArrayList<Cell> readers(HashMap<String, ArrayList<Cell>> map, String name) {
+		ArrayList<Cell> list = map.get(name);
+		if (list == null) {
+			list = new ArrayList<Cell>();
+			map.put(name, list);
+		}
+		return list;
+	}
+
+	private ArrayList<Cell> itemReaders(String name, int index) {
+		HashMap<Integer, ArrayList<Cell>> items = itemReaders.get(name);
+		if (items == null) {
+			items = new HashMap<Integer, ArrayList<Cell>>();
+			itemReaders.put(name, items);
+		}
+		ArrayList<Cell> list = items.get(index);
+		if (list == null) {
+			list = new ArrayList<Cell>();
+			items.put(index, list);
+		}
+		return list;
+	}
+}
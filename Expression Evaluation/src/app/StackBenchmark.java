@@ -0,0 +1,136 @@
+package app;
+
+import structures.ArrayStack;
+import structures.FloatStack;
+import structures.IntStack;
+import structures.Stack;
+
+/**
+ * Compares the primitive and array-backed stacks with the ArrayList-backed Stack,
+ * by timing rounds of pushes and pops. Each benchmark is run a few times first to
+ * let the JIT compile it.
+ * 
+ * Usage: java app.StackBenchmark [items per round] [rounds]
+ * 
+ * @author ru-nb-cs112
+ *
+ */
+public class StackBenchmark {
+
+	static int sink;  // keeps results live so that the loops are not optimized away
+
+	public static void main(String[] args) {
+		int items = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+
+		System.out.println(items + " pushes then pops, " + rounds + " rounds");
+		for (int pass = 0; pass < 2; pass++) {
+			boolean print = pass == 1;  // first pass is warm up
+			report(print, "Stack<Integer>", timeBoxedInt(items, rounds));
+			report(print, "IntStack", timeInt(items, rounds));
+			report(print, "Stack<Float>", timeBoxedFloat(items, rounds));
+			report(print, "FloatStack", timeFloat(items, rounds));
+			report(print, "Stack<String>", timeGeneric(items, rounds));
+			report(print, "ArrayStack<String>", timeArrayGeneric(items, rounds));
+		}
+	}
+
+	private static void report(boolean print, String name, long nanos) {
+		if (print) {
+			System.out.printf("%-20s %8.1f ms%n", name, nanos / 1e6);
+		}
+	}
+
+	/**
+	 * Times a number of rounds, each of which pushes and pops all items.
+	 */
+	private static long time(int rounds, Runnable round) {
+		long start = System.nanoTime();
+		for (int r = 0; r < rounds; r++) {
+			round.run();
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long timeBoxedInt(int items, int rounds) {
+		Stack<Integer> s = new Stack<Integer>();
+		return time(rounds, () -> {
+			for (int i = 0; i < items; i++) {
+				s.push(i);
+			}
+			while (!s.isEmpty()) {
+				sink += s.pop();
+			}
+		});
+	}
+
+	private static long timeInt(int items, int rounds) {
+		IntStack s = new IntStack();
+		return time(rounds, () -> {
+			for (int i = 0; i < items; i++) {
+				s.push(i);
+			}
+			while (!s.isEmpty()) {
+				sink += s.pop();
+			}
+		});
+	}
+
+	private static long timeBoxedFloat(int items, int rounds) {
+		Stack<Float> s = new Stack<Float>();
+		return time(rounds, () -> {
+			for (int i = 0; i < items; i++) {
+				s.push(i * 0.5f);
+			}
+			while (!s.isEmpty()) {
+				sink += (int)(float)s.pop();
+			}
+		});
+	}
+
+	private static long timeFloat(int items, int rounds) {
+		FloatStack s = new FloatStack();
+		return time(rounds, () -> {
+			for (int i = 0; i < items; i++) {
+				s.push(i * 0.5f);
+			}
+			while (!s.isEmpty()) {
+				sink += (int)s.pop();
+			}
+		});
+	}
+
+	private static long timeGeneric(int items, int rounds) {
+		String[] strings = strings(items);
+		Stack<String> s = new Stack<String>();
+		return time(rounds, () -> {
+			for (int i = 0; i < items; i++) {
+				s.push(strings[i]);
+			}
+			while (!s.isEmpty()) {
+				sink += s.pop().length();
+			}
+		});
+	}
+
+	private static long timeArrayGeneric(int items, int rounds) {
+		String[] strings = strings(items);
+		ArrayStack<String> s = new ArrayStack<String>();
+		return time(rounds, () -> {
+			for (int i = 0; i < items; i++) {
+				s.push(strings[i]);
+			}
+			while (!s.isEmpty()) {
+				sink += s.pop().length();
+			}
+		});
+	}
+
+	private static String[] strings(int items) {
+		String[] strings = new String[items];
+		for (int i = 0; i < items; i++) {
+			strings[i] = Integer.toString(i);
+		}
+		return strings;
+	}
+}
@@ -0,0 +1,325 @@
+package app;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * This class loads variable and array values in the same format as
+ * Expression.loadVariableValues, one symbol per line:
+ * <pre>
+ *     name value
+ *     name length (index,value) (index,value) ...
+ * </pre>
+ * but parses bytes directly from NIO channel reads, without a Scanner, tokenizers or
+ * intermediate Strings for numbers. Lines may be arbitrarily long, since a line is
+ * never required to fit in a buffer. Large files can be parsed in parallel, by splitting
+ * them into ranges at line boundaries.
+ *
+ * Each symbol is expected to appear on only one line. If it appears on several lines,
+ * the last one wins when loading sequentially, and the result is unspecified when
+ * loading in parallel.
+ *
+ * @author ru-nb-cs112
+ *
+ */
+public class ValuesLoader {
+
+	/**
+	 * Size of the read buffer for each parser
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Files smaller than this are not split for parallel parsing
+	 */
+	private static final long MIN_PARALLEL_RANGE = 1 << 20;
+
+	// prevent instantiation
+	private ValuesLoader() { }
+
+	/**
+	 * Loads values from a file, in a single thread.
+	 *
+	 * @param fileName Name of values file
+	 * @param vars The variables array list, previously populated by makeVariableLists
+	 * @param arrays The arrays array list, previously populated by makeVariableLists
+	 * @throws IOException If there is a problem reading the file, or it is malformed
+	 */
+	public static void load(String fileName, ArrayList<Variable> vars, ArrayList<Array> arrays)
+	throws IOException {
+		load(fileName, vars, arrays, false);
+	}
+
+	/**
+	 * Loads values from a file.
+	 *
+	 * @param fileName Name of values file
+	 * @param vars The variables array list, previously populated by makeVariableLists
+	 * @param arrays The arrays array list, previously populated by makeVariableLists
+	 * @param parallel True to parse independent ranges of lines in parallel
+	 * @throws IOException If there is a problem reading the file, or it is malformed
+	 */
+	public static void load(String fileName, ArrayList<Variable> vars, ArrayList<Array> arrays, boolean parallel)
+	throws IOException {
+		HashMap<String, Object> symbols = symbolTable(vars, arrays);
+		try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long size = ch.size();
+			int parts = parallel ? (int)Math.min(ForkJoinPool.getCommonPoolParallelism(), size / MIN_PARALLEL_RANGE) : 1;
+			if (parts <= 1) {
+				new Parser(symbols).parse(ch, 0, size);
+				return;
+			}
+
+			// split points are moved forward to the start of the next line
+			long[] starts = new long[parts + 1];
+			starts[parts] = size;
+			for (int i = 1; i < parts; i++) {
+				starts[i] = nextLineStart(ch, Math.max(starts[i-1], size / parts * i), size);
+			}
+			ArrayList<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for (int i = 0; i < parts; i++) {
+				final long from = starts[i], to = starts[i+1];
+				tasks.add(() -> {
+					new Parser(symbols).parse(ch, from, to);
+					return null;
+				});
+			}
+			for (Future<Void> f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+				try {
+					f.get();
+				} catch (ExecutionException e) {
+					if (e.getCause() instanceof IOException) {
+						throw (IOException)e.getCause();
+					}
+					throw new IOException(e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IOException("interrupted while loading " + fileName);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads ALL symbols in a file, adding a Variable to vars for every line with just a
+	 * name and a value, and an Array to arrays for every line with (index,value) pairs.
+	 * This is for values files that are shared by many expressions, so that the file
+	 * is read only once. Loading is done in a single thread.
+	 *
+	 * @param fileName Name of values file
+	 * @param vars Variables array list to which variables are added
+	 * @param arrays Arrays array list to which arrays are added
+	 * @throws IOException If there is a problem reading the file, or it is malformed
+	 */
+	public static void loadAll(String fileName, ArrayList<Variable> vars, ArrayList<Array> arrays)
+	throws IOException {
+		Parser parser = new Parser(symbolTable(vars, arrays));
+		parser.newVars = vars;
+		parser.newArrays = arrays;
+		try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			parser.parse(ch, 0, ch.size());
+		}
+	}
+
+	/**
+	 * Loads values from an input stream, such as standard input.
+	 *
+	 * @param in Input stream with values
+	 * @param vars The variables array list, previously populated by makeVariableLists
+	 * @param arrays The arrays array list, previously populated by makeVariableLists
+	 * @throws IOException If there is a problem reading the input, or it is malformed
+	 */
+	public static void load(InputStream in, ArrayList<Variable> vars, ArrayList<Array> arrays)
+	throws IOException {
+		new Parser(symbolTable(vars, arrays)).parse(Channels.newChannel(in));
+	}
+
+	private static HashMap<String, Object> symbolTable(ArrayList<Variable> vars, ArrayList<Array> arrays) {
+		HashMap<String, Object> symbols = new HashMap<String, Object>();
+		for (Variable v : vars) {
+			symbols.putIfAbsent(v.name, v);
+		}
+		for (Array a : arrays) {
+			symbols.putIfAbsent(a.name, a);
+		}
+		return symbols;
+	}
+
+	private static long nextLineStart(FileChannel ch, long pos, long size)
+	throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(4096);
+		while (pos < size) {
+			buf.clear();
+			int n = ch.read(buf, pos);
+			if (n <= 0) {
+				break;
+			}
+			byte[] b = buf.array();
+			for (int i = 0; i < n; i++) {
+				if (b[i] == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += n;
+		}
+		return size;
+	}
+
+	/**
+	 * Byte level parser for a sequence of complete lines. Numbers are accumulated
+	 * digit by digit; only the symbol name of each line is turned into a String.
+	 */
+	private static class Parser {
+
+		HashMap<String, Object> symbols;
+		byte[] bytes = new byte[BUFFER_SIZE];
+		ByteBuffer buf = ByteBuffer.wrap(bytes);
+
+		StringBuilder name = new StringBuilder();
+		int field;           // 0 = name, 1 = value or length, then alternating index and value
+		Object target;       // Variable or Array for this line, null if not in the expression
+		boolean inToken;
+		boolean negative;
+		long number;
+		int first;           // value or length (field 1)
+		int index;           // pending index of an (index,value) pair
+
+		// if not null, symbols not in the table are created and added to these
+		ArrayList<Variable> newVars;
+		ArrayList<Array> newArrays;
+
+		Parser(HashMap<String, Object> symbols) {
+			this.symbols = symbols;
+		}
+
+		void parse(FileChannel ch, long from, long to)
+		throws IOException {
+			long pos = from;
+			while (pos < to) {
+				buf.clear();
+				buf.limit((int)Math.min(bytes.length, to - pos));
+				int n = ch.read(buf, pos);
+				if (n <= 0) {
+					break;
+				}
+				feed(n);
+				pos += n;
+			}
+			endLine();
+		}
+
+		void parse(ReadableByteChannel ch)
+		throws IOException {
+			int n;
+			buf.clear();
+			while ((n = ch.read(buf)) >= 0) {
+				feed(n);
+				buf.clear();
+			}
+			endLine();
+		}
+
+		void feed(int n)
+		throws IOException {
+			for (int i = 0; i < n; i++) {
+				byte b = bytes[i];
+				if (b >= '0' && b <= '9' && field > 0) {
+					number = number * 10 + (b - '0');
+					if (number > Integer.MAX_VALUE + 1L) {
+						throw new IOException("number too large in values for " + name);
+					}
+					inToken = true;
+				} else if (b == '-' && field > 0 && !inToken) {
+					negative = true;
+					inToken = true;
+				} else if (b == '\n') {
+					endLine();
+				} else if (b == ' ' || b == '\t' || b == '\r' || b == '(' || b == ',' || b == ')') {
+					endToken();
+				} else if (field == 0) {
+					name.append((char)(b & 0xff));
+					inToken = true;
+				} else {
+					throw new IOException("unexpected character '" + (char)(b & 0xff) + "' in values for " + name);
+				}
+			}
+		}
+
+		void endToken()
+		throws IOException {
+			if (!inToken) {
+				return;
+			}
+			inToken = false;
+			if (field == 0) {
+				target = symbols.get(name.toString());
+				if (target == null && newVars != null) {
+					target = name.toString();  // created once we know if it is an array
+				}
+				field = 1;
+				return;
+			}
+			long v = negative ? -number : number;
+			negative = false;
+			number = 0;
+			if (v > Integer.MAX_VALUE) {
+				throw new IOException("number too large in values for " + name);
+			}
+			if (field == 2 && target instanceof String) {
+				Array arr = new Array((String)target);
+				newArrays.add(arr);
+				symbols.put(arr.name, arr);
+				target = arr;
+			}
+			if (field == 1) {
+				first = (int)v;
+			} else if (target instanceof Array) {
+				if (field == 2) {
+					// first pair: the length is now known to be an array length
+					((Array)target).allocate(first);
+				}
+				if (field % 2 == 0) {
+					index = (int)v;
+				} else {
+					((Array)target).set(index, (int)v);
+				}
+			}
+			field++;
+		}
+
+		void endLine()
+		throws IOException {
+			endToken();
+			if (field == 2) {  // just a name and a number
+				if (target instanceof String) {
+					Variable var = new Variable((String)target);
+					newVars.add(var);
+					symbols.put(var.name, var);
+					target = var;
+				}
+				if (target instanceof Variable) {
+					((Variable)target).value = first;
+				} else if (target instanceof Array) {
+					((Array)target).allocate(first);
+				}
+			} else if (field > 2 && field % 2 != 0) {
+				throw new IOException("incomplete (index,value) pair in values for " + name);
+			}
+			name.setLength(0);
+			field = 0;
+			target = null;
+		}
+	}
+}
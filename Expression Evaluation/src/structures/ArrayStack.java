@@ -0,0 +1,113 @@
+package structures;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A generic stack implementation held directly in an array that doubles in size when
+ * full. It has the same operations as Stack, without the ArrayList in between, and
+ * clear keeps the capacity so that the stack can be reused without allocation.
+ * 
+ * @author ru-nb-cs112
+ *
+ * @param <T> Parameter type for items in the stack.
+ */
+public class ArrayStack<T> {
+
+	/**
+	 * Items in the stack, bottom at index 0.
+	 */
+	private Object[] items;
+
+	/**
+	 * Number of items in the stack.
+	 */
+	private int size;
+
+	/**
+	 * Initializes stack to empty.
+	 */
+	public ArrayStack() {
+		this(16);
+	}
+
+	/**
+	 * Initializes stack to empty, with room for the given number of items.
+	 * 
+	 * @param capacity Initial capacity
+	 */
+	public ArrayStack(int capacity) {
+		items = new Object[Math.max(capacity, 1)];
+		size = 0;
+	}
+
+	/**
+	 * Pushes a new item on top of stack.
+	 * 
+	 * @param item Item to push.
+	 */
+	public void push(T item) {
+		if (size == items.length) {
+			items = Arrays.copyOf(items, size * 2);
+		}
+		items[size++] = item;
+	}
+
+	/**
+	 * Pops item at top of stack and returns it.
+	 * 
+	 * @return Popped item.
+	 * @throws NoSuchElementException If stack is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T pop() 
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("can't pop from an empty stack");
+		}
+		T item = (T)items[--size];
+		items[size] = null;  // so the item can be garbage collected
+		return item;
+	}
+
+	/**
+	 * Returns item on top of stack, without popping it.
+	 * 
+	 * @return Item at top of stack.
+	 * @throws NoSuchElementException If stack is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T peek() 
+	throws NoSuchElementException {
+		if (size == 0) {
+			throw new NoSuchElementException("can't peek on an empty stack");
+		}
+		return (T)items[size-1];
+	}
+
+	/**
+	 * Tells if stack is empty.
+	 * 
+	 * @return True if stack is empty, false if not.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Returns number of items in stack.
+	 * 
+	 * @return Number of items in stack.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the stack, keeping its capacity.
+	 */
+	public void clear() {
+		Arrays.fill(items, 0, size, null);
+		size = 0;
+	}
+}
@@ -0,0 +1,37 @@
+package structures;
+
+/**
+ * A fixed length array of int values, all initially zero. Implementations may store
+ * the values in any way, but must throw ArrayIndexOutOfBoundsException for an index
+ * that is negative or not less than the length, exactly like a Java int[].
+ * 
+ * @author ru-nb-cs112
+ *
+ */
+public interface IntArray {
+
+	/**
+	 * Returns the value at an index.
+	 * 
+	 * @param index Index, from 0 to length-1
+	 * @return Value at index
+	 * @throws ArrayIndexOutOfBoundsException If index is out of range
+	 */
+	int get(int index);
+
+	/**
+	 * Sets the value at an index.
+	 * 
+	 * @param index Index, from 0 to length-1
+	 * @param value New value
+	 * @throws ArrayIndexOutOfBoundsException If index is out of range
+	 */
+	void set(int index, int value);
+
+	/**
+	 * Returns the length of the array.
+	 * 
+	 * @return Number of values
+	 */
+	int length();
+}
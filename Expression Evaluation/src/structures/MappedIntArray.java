@@ -0,0 +1,89 @@
+package structures;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An IntArray whose values are held off the Java heap, in memory mapped from a
+ * temporary file. This suits arrays that are dense but too large to allocate as an
+ * int[] on the heap. The file is mapped in segments, since a single mapping is
+ * limited to 2GB; pages that are never written take no memory or disk space on
+ * file systems with sparse files. The temporary file is deleted as soon as it has
+ * been mapped (or on exit, where an open file cannot be deleted).
+ * 
+ * @author ru-nb-cs112
+ *
+ */
+public class MappedIntArray implements IntArray {
+
+	/**
+	 * Number of ints in each mapped segment (1GB)
+	 */
+	private static final int SEGMENT_BITS = 28;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+	/**
+	 * Length of the array
+	 */
+	private int length;
+
+	/**
+	 * Mapped segments
+	 */
+	private MappedByteBuffer[] segments;
+
+	/**
+	 * Initializes to an array of all zero values.
+	 * 
+	 * @param length Length of array
+	 * @throws UncheckedIOException If the temporary file cannot be created or mapped
+	 */
+	public MappedIntArray(int length) {
+		if (length < 0) {
+			throw new NegativeArraySizeException(Integer.toString(length));
+		}
+		this.length = length;
+		segments = new MappedByteBuffer[(int)(((long)length + SEGMENT_MASK) >>> SEGMENT_BITS)];
+		try {
+			File file = File.createTempFile("intarray", ".bin");
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(4L * length);
+				FileChannel ch = raf.getChannel();
+				for (int s = 0; s < segments.length; s++) {
+					long start = (long)s << SEGMENT_BITS;
+					long ints = Math.min(1L << SEGMENT_BITS, length - start);
+					segments[s] = ch.map(FileChannel.MapMode.READ_WRITE, 4 * start, 4 * ints);
+				}
+			}
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("can't map array of length " + length, e);
+		}
+	}
+
+	public int get(int index) {
+		checkIndex(index);
+		return segments[index >>> SEGMENT_BITS].getInt((index & SEGMENT_MASK) << 2);
+	}
+
+	public void set(int index, int value) {
+		checkIndex(index);
+		segments[index >>> SEGMENT_BITS].putInt((index & SEGMENT_MASK) << 2, value);
+	}
+
+	public int length() {
+		return length;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= length) {
+			throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+	}
+}
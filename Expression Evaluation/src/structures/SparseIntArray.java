@@ -0,0 +1,143 @@
+package structures;
+
+import java.util.Arrays;
+
+/**
+ * An IntArray for arrays that are mostly zero. Only indexes that have been set are
+ * stored, in an open addressing hash table (linear probing) of primitive int keys
+ * and values, so memory is proportional to the number of indexes set rather than
+ * to the length of the array.
+ * 
+ * @author ru-nb-cs112
+ *
+ */
+public class SparseIntArray implements IntArray {
+
+	/**
+	 * Marks an empty slot in keys - indexes are never negative
+	 */
+	private static final int EMPTY = -1;
+
+	/**
+	 * Length of the array
+	 */
+	private int length;
+
+	/**
+	 * Hash table slots, capacity is always a power of 2
+	 */
+	private int[] keys;
+	private int[] vals;
+
+	/**
+	 * Number of indexes stored
+	 */
+	private int size;
+
+	/**
+	 * Initializes to an array of all zero values.
+	 * 
+	 * @param length Length of array
+	 */
+	public SparseIntArray(int length) {
+		if (length < 0) {
+			throw new NegativeArraySizeException(Integer.toString(length));
+		}
+		this.length = length;
+		keys = new int[16];
+		vals = new int[16];
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	public int get(int index) {
+		checkIndex(index);
+		int mask = keys.length - 1;
+		for (int i = hash(index) & mask; ; i = (i + 1) & mask) {
+			int k = keys[i];
+			if (k == index) {
+				return vals[i];
+			}
+			if (k == EMPTY) {
+				return 0;
+			}
+		}
+	}
+
+	public void set(int index, int value) {
+		checkIndex(index);
+		int mask = keys.length - 1;
+		int i = hash(index) & mask;
+		while (keys[i] != EMPTY) {
+			if (keys[i] == index) {
+				vals[i] = value;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		if (value == 0) {  // absent already reads as zero
+			return;
+		}
+		keys[i] = index;
+		vals[i] = value;
+		if (++size > keys.length / 2) {
+			grow();
+		}
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Returns the number of indexes stored, which is at most the number of
+	 * indexes that have been set to a non-zero value.
+	 * 
+	 * @return Number of stored indexes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Copies all stored values into another array of at least the same length.
+	 * 
+	 * @param dest Destination array
+	 */
+	public void copyTo(IntArray dest) {
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				dest.set(keys[i], vals[i]);
+			}
+		}
+	}
+
+	private void grow() {
+		int[] oldKeys = keys, oldVals = vals;
+		keys = new int[oldKeys.length * 2];
+		vals = new int[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		int mask = keys.length - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != EMPTY) {
+				int i = hash(oldKeys[j]) & mask;
+				while (keys[i] != EMPTY) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				vals[i] = oldVals[j];
+			}
+		}
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= length) {
+			throw new ArrayIndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+		}
+	}
+}
@@ -0,0 +1,439 @@
+package poly;
+
+import java.util.Arrays;
+
+/**
+ * This class implements an immutable polynomial held in primitive arrays instead of a
+ * linked list of Node and Term objects. A dense polynomial is a single array of
+ * coefficients, indexed by degree. A sparse polynomial is a pair of parallel arrays of
+ * degrees (ascending) and coefficients, holding only the nonzero terms.
+ *
+ * Every polynomial, including the result of add and multiply, is stored in whichever
+ * representation suits its density: dense if at least one in DENSE_RATIO of the
+ * coefficients up to its degree is nonzero, sparse otherwise. Zero terms are never
+ * kept, and the zero polynomial has no terms.
+ *
+ * @author runb-cs112
+ *
+ */
+public class ArrayPolynomial {
+
+	/**
+	 * A polynomial is dense if its degree plus one is at most this many times its
+	 * number of terms. A dense coefficient takes 4 bytes, and a sparse term 8, so a
+	 * dense array is then at most twice the size of the sparse arrays.
+	 */
+	static final int DENSE_RATIO = 4;
+
+	/**
+	 * Coefficients by degree, if dense, else null
+	 */
+	private float[] dense;
+
+	/**
+	 * Degrees, ascending, and their coefficients, if sparse, else null
+	 */
+	private int[] degrees;
+	private float[] coeffs;
+
+	/**
+	 * Number of nonzero terms
+	 */
+	private int terms;
+
+	/**
+	 * The zero polynomial
+	 */
+	public static final ArrayPolynomial ZERO = new ArrayPolynomial(new int[0], new float[0], 0);
+
+	private ArrayPolynomial(float[] dense, int terms) {
+		this.dense = dense;
+		this.terms = terms;
+	}
+
+	private ArrayPolynomial(int[] degrees, float[] coeffs, int terms) {
+		this.degrees = degrees;
+		this.coeffs = coeffs;
+		this.terms = terms;
+	}
+
+	/**
+	 * Converts a polynomial linked list, in ascending order of degrees (as returned by
+	 * Polynomial.read, add and multiply). Terms with equal degrees are added up.
+	 *
+	 * @param poly Polynomial (front of linked list)
+	 * @return Array polynomial with the same terms
+	 * @throws IllegalArgumentException If a degree is negative, or degrees are not
+	 * 			in ascending order
+	 */
+	public static ArrayPolynomial fromNodes(Node poly) {
+		int n = 0;
+		for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+			if (ptr.term.degree < 0) {
+				throw new IllegalArgumentException("negative degree: " + ptr.term.degree);
+			}
+			if (ptr.next != null && ptr.next.term.degree < ptr.term.degree) {
+				throw new IllegalArgumentException("degrees are not in ascending order: " +
+						ptr.term.degree + ", " + ptr.next.term.degree);
+			}
+			n++;
+		}
+		int[] degrees = new int[n];
+		float[] coeffs = new float[n];
+		int count = 0;
+		for (Node ptr = poly; ptr != null; ptr = ptr.next) {
+			if (count > 0 && degrees[count-1] == ptr.term.degree) {
+				coeffs[count-1] += ptr.term.coeff;
+			} else {
+				degrees[count] = ptr.term.degree;
+				coeffs[count++] = ptr.term.coeff;
+			}
+		}
+		return fromSparse(degrees, coeffs, count);
+	}
+
+	/**
+	 * Makes a polynomial from coefficients indexed by degree.
+	 *
+	 * @param coeffs Coefficients, coeffs[i] is the coefficient of x^i (not changed)
+	 * @return Array polynomial with the nonzero coefficients
+	 */
+	public static ArrayPolynomial fromCoefficients(float[] coeffs) {
+		return fromDense(coeffs.clone());
+	}
+
+	/**
+	 * Converts to a polynomial linked list, in ascending order of degrees. The list
+	 * has all new nodes.
+	 *
+	 * @return Polynomial (front of linked list), null if this is the zero polynomial
+	 */
+	public Node toNodes() {
+		Node front = null;
+		if (dense != null) {
+			for (int i = dense.length - 1; i >= 0; i--) {
+				if (dense[i] != 0) {
+					front = new Node(dense[i], i, front);
+				}
+			}
+		} else {
+			for (int i = terms - 1; i >= 0; i--) {
+				front = new Node(coeffs[i], degrees[i], front);
+			}
+		}
+		return front;
+	}
+
+	/**
+	 * Returns the sum of two polynomials. The result is dense if both are, and
+	 * otherwise merged term by term.
+	 *
+	 * @param p First polynomial
+	 * @param q Second polynomial
+	 * @return Sum, in the representation that suits its density
+	 */
+	public static ArrayPolynomial add(ArrayPolynomial p, ArrayPolynomial q) {
+		if (p.terms == 0) {
+			return q;
+		}
+		if (q.terms == 0) {
+			return p;
+		}
+		if (p.dense != null && q.dense != null) {
+			float[] a = p.dense.length >= q.dense.length ? p.dense : q.dense;
+			float[] b = a == p.dense ? q.dense : p.dense;
+			float[] sum = Arrays.copyOf(a, a.length);
+			for (int i = 0; i < b.length; i++) {
+				sum[i] += b[i];
+			}
+			return fromDense(sum);
+		}
+		int[] pDegrees = p.sparseDegrees(), qDegrees = q.sparseDegrees();
+		float[] pCoeffs = p.sparseCoeffs(), qCoeffs = q.sparseCoeffs();
+		int[] degrees = new int[p.terms + q.terms];
+		float[] coeffs = new float[p.terms + q.terms];
+		int i = 0, j = 0, count = 0;
+		while (i < p.terms || j < q.terms) {
+			float c;
+			int d;
+			if (j == q.terms || (i < p.terms && pDegrees[i] < qDegrees[j])) {
+				d = pDegrees[i];
+				c = pCoeffs[i++];
+			} else if (i == p.terms || qDegrees[j] < pDegrees[i]) {
+				d = qDegrees[j];
+				c = qCoeffs[j++];
+			} else {
+				d = pDegrees[i];
+				c = pCoeffs[i++] + qCoeffs[j++];
+			}
+			if (c != 0) {
+				degrees[count] = d;
+				coeffs[count++] = c;
+			}
+		}
+		return fromSparse(degrees, coeffs, count);
+	}
+
+	/**
+	 * Returns the product of two polynomials. If both are dense, the product is
+	 * computed as a dense convolution, and so it is if there are at least as many term
+	 * products as degrees in the product. Otherwise, the term products are merged in
+	 * order of degree with a heap (see ProductHeap), in O(nm log n) time for n and m
+	 * terms, n the smaller, and the result is allocated once.
+	 *
+	 * @param p First polynomial
+	 * @param q Second polynomial
+	 * @return Product, in the representation that suits its density
+	 * @throws ArithmeticException If the degree of the product does not fit in an int
+	 */
+	public static ArrayPolynomial multiply(ArrayPolynomial p, ArrayPolynomial q) {
+		if (p.terms == 0 || q.terms == 0) {
+			return ZERO;
+		}
+		long length = (long)p.degree() + q.degree() + 1;
+		if (length - 1 > Integer.MAX_VALUE) {
+			throw new ArithmeticException("degree of product overflows int: " +
+					p.degree() + " + " + q.degree());
+		}
+		if (p.dense != null && q.dense != null) {
+			float[] product = new float[p.dense.length + q.dense.length - 1];
+			for (int i = 0; i < p.dense.length; i++) {
+				float c = p.dense[i];
+				if (c == 0) {
+					continue;
+				}
+				for (int j = 0; j < q.dense.length; j++) {
+					product[i + j] += c * q.dense[j];
+				}
+			}
+			return fromDense(product);
+		}
+		if (p.terms > q.terms) {
+			ArrayPolynomial t = p;
+			p = q;
+			q = t;
+		}
+		int[] pDegrees = p.sparseDegrees(), qDegrees = q.sparseDegrees();
+		float[] pCoeffs = p.sparseCoeffs(), qCoeffs = q.sparseCoeffs();
+
+		long products = (long)p.terms * q.terms;
+		if (length <= products && length < Integer.MAX_VALUE) {
+			// products collide on degrees anyway, so add them up in an array by degree
+			float[] product = new float[(int)length];
+			for (int i = 0; i < p.terms; i++) {
+				for (int j = 0; j < q.terms; j++) {
+					product[pDegrees[i] + qDegrees[j]] += pCoeffs[i] * qCoeffs[j];
+				}
+			}
+			return fromDense(product);
+		}
+
+		// the result has at most terms(p) * terms(q) terms, and at most degree + 1
+		int max = (int)Math.min(products, length);
+		int[] degrees = new int[max];
+		float[] coeffs = new float[max];
+		int count = ProductHeap.multiply(pDegrees, pCoeffs, p.terms, qDegrees, qCoeffs, q.terms, degrees, coeffs);
+		return fromSparse(degrees, coeffs, count);
+	}
+
+	/**
+	 * Evaluates this polynomial at a given value, with Horner's rule. For a sparse
+	 * polynomial, each gap between consecutive degrees is one power.
+	 *
+	 * @param x Value at which evaluation is to be done
+	 * @return Value of polynomial at x
+	 */
+	public float evaluate(float x) {
+		double sum = 0;
+		if (dense != null) {
+			for (int i = dense.length - 1; i >= 0; i--) {
+				sum = sum * x + dense[i];
+			}
+			return (float)sum;
+		}
+		for (int i = terms - 1; i >= 0; i--) {
+			int gap = degrees[i] - (i == 0 ? 0 : degrees[i-1]);
+			sum = (sum + coeffs[i]) * (gap == 1 ? x : Math.pow(x, gap));
+		}
+		return (float)sum;
+	}
+
+	/**
+	 * Returns the degree of this polynomial.
+	 *
+	 * @return Highest degree with a nonzero coefficient, or -1 for the zero polynomial
+	 */
+	public int degree() {
+		if (terms == 0) {
+			return -1;
+		}
+		return dense != null ? dense.length - 1 : degrees[terms-1];
+	}
+
+	/**
+	 * Returns the number of nonzero terms.
+	 *
+	 * @return Number of terms
+	 */
+	public int terms() {
+		return terms;
+	}
+
+	/**
+	 * Tells whether this polynomial is held as a dense array of coefficients.
+	 *
+	 * @return True if dense, false if sparse
+	 */
+	public boolean isDense() {
+		return dense != null;
+	}
+
+	/**
+	 * Returns the coefficient of a term.
+	 *
+	 * @param degree Degree of term
+	 * @return Coefficient, 0 if there is no term with this degree
+	 */
+	public float coefficient(int degree) {
+		if (dense != null) {
+			return degree >= 0 && degree < dense.length ? dense[degree] : 0;
+		}
+		int i = Arrays.binarySearch(degrees, 0, terms, degree);
+		return i < 0 ? 0 : coeffs[i];
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	public boolean equals(Object other) {
+		if (!(other instanceof ArrayPolynomial)) {
+			return false;
+		}
+		ArrayPolynomial p = (ArrayPolynomial)other;
+		if (terms != p.terms || isDense() != p.isDense()) {  // the representation follows from the terms
+			return false;
+		}
+		if (dense != null) {
+			return Arrays.equals(dense, p.dense);
+		}
+		return Arrays.equals(degrees, p.degrees) && Arrays.equals(coeffs, p.coeffs);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	public int hashCode() {
+		if (dense != null) {
+			return Arrays.hashCode(dense);
+		}
+		return 31 * Arrays.hashCode(degrees) + Arrays.hashCode(coeffs);
+	}
+
+	/**
+	 * Returns string representation, in the same format as Polynomial.toString.
+	 *
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (terms == 0) {
+			return "0";
+		}
+		int[] d = sparseDegrees();
+		float[] c = sparseCoeffs();
+		StringBuilder sb = new StringBuilder();
+		for (int i = terms - 1; i >= 0; i--) {
+			if (sb.length() > 0) {
+				sb.append(" + ");
+			}
+			sb.append(new Term(c[i], d[i]));
+		}
+		return sb.toString();
+	}
+
+	private int[] sparseDegrees() {
+		if (dense == null) {
+			return degrees;
+		}
+		int[] d = new int[terms];
+		for (int i = 0, n = 0; i < dense.length; i++) {
+			if (dense[i] != 0) {
+				d[n++] = i;
+			}
+		}
+		return d;
+	}
+
+	private float[] sparseCoeffs() {
+		if (dense == null) {
+			return coeffs;
+		}
+		float[] c = new float[terms];
+		for (int i = 0, n = 0; i < dense.length; i++) {
+			if (dense[i] != 0) {
+				c[n++] = dense[i];
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * Makes a polynomial from coefficients by degree, which it may keep.
+	 */
+	private static ArrayPolynomial fromDense(float[] coeffs) {
+		int length = coeffs.length;
+		while (length > 0 && coeffs[length-1] == 0) {
+			length--;
+		}
+		int terms = 0;
+		for (int i = 0; i < length; i++) {
+			if (coeffs[i] != 0) {
+				terms++;
+			}
+		}
+		if (terms == 0) {
+			return ZERO;
+		}
+		if ((long)terms * DENSE_RATIO >= length) {
+			return new ArrayPolynomial(length == coeffs.length ? coeffs : Arrays.copyOf(coeffs, length), terms);
+		}
+		int[] degrees = new int[terms];
+		float[] sparse = new float[terms];
+		for (int i = 0, n = 0; i < length; i++) {
+			if (coeffs[i] != 0) {
+				degrees[n] = i;
+				sparse[n++] = coeffs[i];
+			}
+		}
+		return new ArrayPolynomial(degrees, sparse, terms);
+	}
+
+	/**
+	 * Makes a polynomial from the first count terms of parallel arrays, in ascending
+	 * order of degree, dropping zero coefficients. The arrays may be kept.
+	 */
+	private static ArrayPolynomial fromSparse(int[] degrees, float[] coeffs, int count) {
+		int n = 0;
+		for (int i = 0; i < count; i++) {
+			if (coeffs[i] != 0) {
+				degrees[n] = degrees[i];
+				coeffs[n++] = coeffs[i];
+			}
+		}
+		if (n == 0) {
+			return ZERO;
+		}
+		int length = degrees[n-1] + 1;
+		if ((long)n * DENSE_RATIO >= length) {
+			float[] dense = new float[length];
+			for (int i = 0; i < n; i++) {
+				dense[degrees[i]] = coeffs[i];
+			}
+			return new ArrayPolynomial(dense, n);
+		}
+		if (n < degrees.length) {
+			degrees = Arrays.copyOf(degrees, n);
+			coeffs = Arrays.copyOf(coeffs, n);
+		}
+		return new ArrayPolynomial(degrees, coeffs, n);
+	}
+}
@@ -109,28 +109,17 @@ public class Polynomial {
 	 * @param poly2 Second input polynomial (front of polynomial linked list)
 	 * @return A new polynomial which is the product of the input polynomials - the returned node
 	 *         is the front of the result polynomial
+	 * @throws IllegalArgumentException If a degree is negative, or the degrees of an input
+	 *         polynomial are not in ascending order (as returned by read, add and multiply)
+	 * @throws ArithmeticException If the degree of the product does not fit in an int
 	 */
 	public static Node multiply(Node poly1, Node poly2) {
 		if(poly1 == null || poly2 == null)		//If a poly is empty.
 			return null;
-		Node ptr1 = poly1;
-		Node ptr2 = poly2;
-		Node front = new Node(0, 0 , null);
-		while(ptr1 != null) {
-			Node poly3 = new Node(0, 0, null);
-			Node ptr3 = poly3;
-			ptr2 = poly2;
-			while(ptr2 != null) {
-				ptr3.term.coeff = ptr2.term.coeff * ptr1.term.coeff;
-				ptr3.term.degree = ptr2.term.degree + ptr1.term.degree;
-				ptr2 = ptr2.next;
-				ptr3.next = new Node(0, 0, null);
-				ptr3 = ptr3.next;
-			}
-			front = add(front,poly3);
-			ptr1 = ptr1.next;
-		}
-		return front;
+		// term products are merged in order of degree by ProductHeap (or convolved, if
+		// both are dense), instead of adding up one partial product per term of poly1
+		return ArrayPolynomial.multiply(ArrayPolynomial.fromNodes(poly1), 
+				ArrayPolynomial.fromNodes(poly2)).toNodes();
 	}
 		
 	/**
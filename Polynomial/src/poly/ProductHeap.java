@@ -0,0 +1,122 @@
+package poly;
+
+/**
+ * This class multiplies sparse polynomials with Johnson's algorithm: the term products
+ * are a k-way merge of the rows p[i]*q (one row per term of p, each already in
+ * ascending order of degree), done with a binary min heap that holds the next product
+ * of each row. Products come off the heap in ascending order of degree, so equal
+ * degrees are added up as they come, and the result is written once, in order.
+ *
+ * The heap is index based: it holds row numbers in an int array, with their keys
+ * (degree of the next product in the row) in a long array, and the next column of
+ * each row in another int array, so nothing is allocated per product. With n terms
+ * in p and m in q, multiplying takes O(nm log n) time and O(n) space besides the
+ * result.
+ *
+ * @author runb-cs112
+ *
+ */
+class ProductHeap {
+
+	/**
+	 * Heap of rows, with the degree of the next product of each, ordered by degree
+	 */
+	private int[] rows;
+	private long[] keys;
+	private int size;
+
+	/**
+	 * Next column (term of q) of each row
+	 */
+	private int[] next;
+
+	private ProductHeap(int n) {
+		rows = new int[n];
+		keys = new long[n];
+		next = new int[n];
+	}
+
+	/**
+	 * Multiplies two polynomials given as parallel arrays of degrees (ascending, no
+	 * repeats) and coefficients, writing the nonzero terms of the product in ascending
+	 * order of degree. The polynomial with fewer terms should be passed as p, since
+	 * the heap holds one entry per term of p.
+	 *
+	 * @param pDegrees Degrees of first polynomial
+	 * @param pCoeffs Coefficients of first polynomial
+	 * @param n Number of terms of first polynomial
+	 * @param qDegrees Degrees of second polynomial
+	 * @param qCoeffs Coefficients of second polynomial
+	 * @param m Number of terms of second polynomial
+	 * @param degrees Degrees of product, filled in; must have room for all its terms
+	 * @param coeffs Coefficients of product, filled in
+	 * @return Number of terms in the product
+	 */
+	static int multiply(int[] pDegrees, float[] pCoeffs, int n,
+			int[] qDegrees, float[] qCoeffs, int m, int[] degrees, float[] coeffs) {
+		if (n == 0 || m == 0) {
+			return 0;
+		}
+		ProductHeap heap = new ProductHeap(n);
+		// rows enter in order of their first (lowest) product, which is already a heap
+		for (int i = 0; i < n; i++) {
+			heap.rows[i] = i;
+			heap.keys[i] = (long)pDegrees[i] + qDegrees[0];
+		}
+		heap.size = n;
+
+		int count = 0;
+		while (heap.size > 0) {
+			long degree = heap.keys[0];
+			float sum = 0;
+			// take every product with this degree, advancing its row
+			do {
+				int i = heap.rows[0];
+				int j = heap.next[i]++;
+				sum += pCoeffs[i] * qCoeffs[j];
+				if (j + 1 < m) {
+					heap.keys[0] = (long)pDegrees[i] + qDegrees[j + 1];
+					heap.siftDown(0);
+				} else {
+					heap.removeTop();
+				}
+			} while (heap.size > 0 && heap.keys[0] == degree);
+			if (sum != 0) {
+				degrees[count] = (int)degree;
+				coeffs[count++] = sum;
+			}
+		}
+		return count;
+	}
+
+	private void removeTop() {
+		size--;
+		if (size > 0) {
+			rows[0] = rows[size];
+			keys[0] = keys[size];
+			siftDown(0);
+		}
+	}
+
+	private void siftDown(int k) {
+		int row = rows[k];
+		long key = keys[k];
+		while (true) {
+			int child = 2 * k + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && keys[child + 1] < keys[child]) {
+				child++;
+			}
+			if (keys[child] >= key) {
+				break;
+			}
+			rows[k] = rows[child];
+			keys[k] = keys[child];
+			k = child;
+		}
+		rows[k] = row;
+		keys[k] = key;
+	}
+}
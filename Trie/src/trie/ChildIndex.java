@@ -0,0 +1,224 @@
+package trie;
+
+/**
+ * This class indexes the children of a trie node by the first character of their
+ * substrings, in the manner of an Adaptive Radix Tree, so that a child is found 
+ * without walking the sibling list. The sibling list stays the actual list of 
+ * children (in insertion order); the index only speeds up lookups in it.
+ * 
+ * The index adapts to the number of children: up to MAX_SORTED children, keys are 
+ * kept in a compact sorted array and searched with binary search; beyond that, 
+ * children are kept in a table indexed directly by character (offset by the smallest 
+ * key). Nodes with fewer than MIN_CHILDREN children have no index at all, since 
+ * walking a few siblings is as fast as any lookup.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+class ChildIndex {
+
+	/**
+	 * A node gets an index when it has this many children
+	 */
+	static final int MIN_CHILDREN = 4;
+	
+	/**
+	 * A node loses its index when it is down to this many children
+	 */
+	static final int DROP_CHILDREN = 2;
+	
+	/**
+	 * Largest number of children in the sorted form; more are in a direct table
+	 */
+	static final int MAX_SORTED = 16;
+	
+	/**
+	 * Largest direct table; keys spread wider than this stay in the sorted form
+	 */
+	static final int MAX_TABLE = 256;
+	
+	/**
+	 * Number of children
+	 */
+	int count;
+	
+	/**
+	 * Last child in the sibling list, so that a child can be appended without a walk
+	 */
+	TrieNode last;
+	
+	/**
+	 * Sorted form: keys in ascending order, and children with those keys
+	 */
+	private char[] keys;
+	private TrieNode[] nodes;
+	
+	/**
+	 * Direct form: child with key base+i at index i, null for no child
+	 */
+	private char base;
+	private TrieNode[] table;
+	
+	/**
+	 * Initializes an empty index, in sorted form.
+	 */
+	ChildIndex() {
+		keys = new char[MAX_SORTED];
+		nodes = new TrieNode[MAX_SORTED];
+	}
+	
+	/**
+	 * Returns the child whose substring starts with a character.
+	 * 
+	 * @param c First character
+	 * @return Child, or null if there is none
+	 */
+	TrieNode get(char c) {
+		if (table != null) {
+			int i = c - base;
+			return i >= 0 && i < table.length ? table[i] : null;
+		}
+		int i = search(c);
+		return i >= 0 ? nodes[i] : null;
+	}
+	
+	/**
+	 * Adds a child, or replaces the child with the same first character.
+	 * 
+	 * @param c First character of child's substring
+	 * @param child Child
+	 */
+	void put(char c, TrieNode child) {
+		if (table != null) {
+			int i = c - base;
+			if (i >= 0 && i < table.length) {
+				if (table[i] == null) {
+					count++;
+				}
+				table[i] = child;
+				return;
+			}
+			int low = Math.min(c, base);
+			int high = Math.max(c, base + table.length - 1);
+			if (high - low + 1 > MAX_TABLE) {
+				toSorted(count + 1);
+			} else {
+				TrieNode[] bigger = new TrieNode[high - low + 1];
+				System.arraycopy(table, 0, bigger, base - low, table.length);
+				table = bigger;
+				base = (char)low;
+				table[c - base] = child;
+				count++;
+				return;
+			}
+		}
+		int i = search(c);
+		if (i >= 0) {
+			nodes[i] = child;
+			return;
+		}
+		i = -(i + 1);
+		if (count == keys.length) {
+			char[] moreKeys = new char[keys.length * 2];
+			TrieNode[] moreNodes = new TrieNode[keys.length * 2];
+			System.arraycopy(keys, 0, moreKeys, 0, count);
+			System.arraycopy(nodes, 0, moreNodes, 0, count);
+			keys = moreKeys;
+			nodes = moreNodes;
+		}
+		System.arraycopy(keys, i, keys, i + 1, count - i);
+		System.arraycopy(nodes, i, nodes, i + 1, count - i);
+		keys[i] = c;
+		nodes[i] = child;
+		count++;
+		if (count > MAX_SORTED && keys[count - 1] - keys[0] < MAX_TABLE) {
+			toTable();
+		}
+	}
+	
+	/**
+	 * Removes the child whose substring starts with a character.
+	 * 
+	 * @param c First character of child's substring
+	 */
+	void remove(char c) {
+		if (table != null) {
+			int i = c - base;
+			if (i >= 0 && i < table.length && table[i] != null) {
+				table[i] = null;
+				count--;
+				if (count < MAX_SORTED / 2) {
+					toSorted(MAX_SORTED);
+				}
+			}
+			return;
+		}
+		int i = search(c);
+		if (i >= 0) {
+			System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+			System.arraycopy(nodes, i + 1, nodes, i, count - i - 1);
+			count--;
+			nodes[count] = null;
+		}
+	}
+	
+	/**
+	 * Tells whether the index is in the direct table form.
+	 * 
+	 * @return True for a direct table, false for sorted arrays
+	 */
+	boolean isTable() {
+		return table != null;
+	}
+	
+	/**
+	 * Returns the approximate number of bytes taken by the index.
+	 * 
+	 * @return Memory used by this index
+	 */
+	long bytes() {
+		long b = 40;  // header, fields
+		if (table != null) {
+			return b + 16 + 4L * table.length;
+		}
+		return b + 16 + 2L * keys.length + 16 + 4L * nodes.length;
+	}
+	
+	private int search(char c) {
+		int lo = 0, hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (keys[mid] < c) {
+				lo = mid + 1;
+			} else if (keys[mid] > c) {
+				hi = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(lo + 1);
+	}
+	
+	private void toTable() {
+		base = keys[0];
+		table = new TrieNode[keys[count - 1] - base + 1];
+		for (int i = 0; i < count; i++) {
+			table[keys[i] - base] = nodes[i];
+		}
+		keys = null;
+		nodes = null;
+	}
+	
+	private void toSorted(int capacity) {
+		keys = new char[Math.max(capacity, count)];
+		nodes = new TrieNode[keys.length];
+		int n = 0;
+		for (int i = 0; i < table.length; i++) {
+			if (table[i] != null) {
+				keys[n] = (char)(base + i);
+				nodes[n++] = table[i];
+			}
+		}
+		table = null;
+	}
+}
@@ -0,0 +1,351 @@
+package trie;
+
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * This class caches completion lists for the prefixes that are asked for most often,
+ * in front of a trie that changes with inserts and deletes. Completion lists are held
+ * as word indexes, which stay valid when nodes are split or merged.
+ * 
+ * The cache is bounded by an (estimated) number of bytes. When it is over budget, 
+ * the least frequently used prefix is evicted; among prefixes used equally often, 
+ * the least recently used. Frequencies are kept in a list of buckets, so lookups,
+ * insertions and evictions all take constant time.
+ * 
+ * Words must be inserted and deleted through the cache (or reported to it with 
+ * invalidate), so that it can drop exactly the entries that change: the completion
+ * lists for the prefixes of the changed word, and no others. All methods are 
+ * synchronized on the cache, which also guards the trie.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class CompletionCache {
+
+	/**
+	 * Estimated bytes per entry other than the completion list itself: the entry,
+	 * its hash map node, and the prefix string
+	 */
+	private static final int ENTRY_BYTES = 120;
+	
+	private static final int[] NO_MATCHES = new int[0];
+	
+	/**
+	 * A cached completion list, in the list of its frequency bucket
+	 */
+	private static class Entry {
+		String prefix;
+		int[] matches;
+		long bytes;
+		Bucket bucket;
+		Entry prev, next;
+	}
+	
+	/**
+	 * Entries used the same number of times, least recently used first. Buckets are
+	 * in a list in ascending order of frequency.
+	 */
+	private static class Bucket {
+		long frequency;
+		Entry first, last;
+		Bucket prev, next;
+	}
+	
+	/**
+	 * The trie, and its words
+	 */
+	private TrieNode root;
+	private WordStore words;
+	
+	/**
+	 * Entries by prefix, and the bucket of least frequently used entries
+	 */
+	private HashMap<String, Entry> map;
+	private Bucket lowest;
+	
+	/**
+	 * Budget, and estimated bytes held
+	 */
+	private long budget;
+	private long bytes;
+	
+	/**
+	 * Counts
+	 */
+	private long hits, misses, evictions, invalidations;
+	
+	/**
+	 * Initializes an empty cache for a trie.
+	 * 
+	 * @param root Root of trie
+	 * @param words Store of the words in the trie
+	 * @param budget Maximum number of bytes (estimated) to hold
+	 */
+	public CompletionCache(TrieNode root, WordStore words, long budget) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("budget must be positive: " + budget);
+		}
+		this.root = root;
+		this.words = words;
+		this.budget = budget;
+		map = new HashMap<String, Entry>();
+	}
+	
+	/**
+	 * Returns the completion list for a prefix, computing it only if it is not 
+	 * already in the cache.
+	 * 
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Indexes (in the word store) of all words that start with the prefix, in 
+	 * 			trie order, or null if there are none. The array is shared with the cache
+	 * 			and must not be modified.
+	 */
+	public synchronized int[] completionList(String prefix) {
+		Entry e = map.get(prefix);
+		if (e != null) {
+			hits++;
+			touch(e);
+		} else {
+			misses++;
+			e = add(prefix, compute(prefix));
+		}
+		return e.matches.length == 0 ? null : e.matches;
+	}
+	
+	/**
+	 * Inserts a word into the trie, and drops the cached completion lists it changes.
+	 * 
+	 * @param word Word (lowercase) to be inserted
+	 * @return Leaf node that holds the word
+	 * @throws IllegalArgumentException As for Trie.insert
+	 */
+	public synchronized TrieNode insert(String word) {
+		TrieNode leaf = Trie.insert(root, words, word);
+		invalidate(word);
+		return leaf;
+	}
+	
+	/**
+	 * Deletes a word from the trie, and drops the cached completion lists it changes.
+	 * 
+	 * @param word Word to be deleted
+	 * @return True if the word was deleted, false if it was not in the trie
+	 */
+	public synchronized boolean delete(String word) {
+		if (!Trie.delete(root, words, word)) {
+			return false;
+		}
+		invalidate(word);
+		return true;
+	}
+	
+	/**
+	 * Drops the cached completion lists for all prefixes of a word, which are the only
+	 * ones that change when the word is inserted or deleted.
+	 * 
+	 * @param word Word that has been inserted into or deleted from the trie
+	 */
+	public synchronized void invalidate(String word) {
+		for (int i = 0; i <= word.length(); i++) {
+			Entry e = map.remove(word.substring(0, i));
+			if (e != null) {
+				unlink(e);
+				bytes -= e.bytes;
+				invalidations++;
+			}
+		}
+	}
+	
+	/**
+	 * Removes all entries. Counts are not reset.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		lowest = null;
+		bytes = 0;
+	}
+	
+	private int[] compute(String prefix) {
+		String[] allWords = words.array();
+		int[] matches = new int[16];
+		int count = 0;
+		for (Iterator<TrieNode> it = Trie.completions(root, allWords, prefix); it.hasNext(); ) {
+			if (count == matches.length) {
+				int[] bigger = new int[count * 2];
+				System.arraycopy(matches, 0, bigger, 0, count);
+				matches = bigger;
+			}
+			matches[count++] = it.next().substr.wordIndex;
+		}
+		if (count == 0) {
+			return NO_MATCHES;
+		}
+		int[] exact = new int[count];
+		System.arraycopy(matches, 0, exact, 0, count);
+		return exact;
+	}
+	
+	private Entry add(String prefix, int[] matches) {
+		Entry e = new Entry();
+		e.prefix = prefix;
+		e.matches = matches;
+		e.bytes = ENTRY_BYTES + prefix.length() + 16 + 4L * matches.length;
+		if (e.bytes > budget) {
+			return e;  // would not fit even alone, so it is not cached
+		}
+		while (bytes + e.bytes > budget) {
+			Entry victim = lowest.first;
+			unlink(victim);
+			map.remove(victim.prefix);
+			bytes -= victim.bytes;
+			evictions++;
+		}
+		Bucket b = lowest;
+		if (b == null || b.frequency != 1) {
+			b = new Bucket();
+			b.frequency = 1;
+			b.next = lowest;
+			if (lowest != null) {
+				lowest.prev = b;
+			}
+			lowest = b;
+		}
+		append(b, e);
+		map.put(prefix, e);
+		bytes += e.bytes;
+		return e;
+	}
+	
+	/**
+	 * Moves an entry to the bucket for one more use.
+	 */
+	private void touch(Entry e) {
+		Bucket b = e.bucket;
+		Bucket target = b.next;
+		if (target == null || target.frequency != b.frequency + 1) {
+			target = new Bucket();
+			target.frequency = b.frequency + 1;
+			target.prev = b;
+			target.next = b.next;
+			if (b.next != null) {
+				b.next.prev = target;
+			}
+			b.next = target;
+		}
+		unlink(e);
+		append(target, e);
+	}
+	
+	private static void append(Bucket b, Entry e) {
+		e.bucket = b;
+		e.prev = b.last;
+		e.next = null;
+		if (b.last == null) {
+			b.first = e;
+		} else {
+			b.last.next = e;
+		}
+		b.last = e;
+	}
+	
+	/**
+	 * Takes an entry out of its bucket, and the bucket out of the list if it is empty.
+	 */
+	private void unlink(Entry e) {
+		Bucket b = e.bucket;
+		if (e.prev == null) {
+			b.first = e.next;
+		} else {
+			e.prev.next = e.next;
+		}
+		if (e.next == null) {
+			b.last = e.prev;
+		} else {
+			e.next.prev = e.prev;
+		}
+		e.prev = e.next = null;
+		if (b.first == null) {
+			if (b.prev == null) {
+				lowest = b.next;
+			} else {
+				b.prev.next = b.next;
+			}
+			if (b.next != null) {
+				b.next.prev = b.prev;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of prefixes in the cache.
+	 * 
+	 * @return Number of entries
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+	
+	/**
+	 * Returns the estimated number of bytes held.
+	 * 
+	 * @return Bytes held, at most the budget
+	 */
+	public synchronized long bytes() {
+		return bytes;
+	}
+	
+	/**
+	 * Returns the number of lookups that found the prefix in the cache.
+	 * 
+	 * @return Number of hits
+	 */
+	public synchronized long hits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of lookups that had to go to the trie.
+	 * 
+	 * @return Number of misses
+	 */
+	public synchronized long misses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the number of entries evicted to stay within the budget.
+	 * 
+	 * @return Number of evictions
+	 */
+	public synchronized long evictions() {
+		return evictions;
+	}
+	
+	/**
+	 * Returns the number of entries dropped because the trie changed.
+	 * 
+	 * @return Number of invalidations
+	 */
+	public synchronized long invalidations() {
+		return invalidations;
+	}
+	
+	/**
+	 * Returns the fraction of lookups that were hits.
+	 * 
+	 * @return Hit rate, 0 if there have been no lookups
+	 */
+	public synchronized double hitRate() {
+		long total = hits + misses;
+		return total == 0 ? 0 : (double)hits / total;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	public synchronized String toString() {
+		return "size=" + map.size() + ", bytes=" + bytes + "/" + budget + ", hits=" + hits + 
+				", misses=" + misses + ", evictions=" + evictions + ", invalidations=" + invalidations;
+	}
+}
@@ -0,0 +1,99 @@
+package trie;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class iterates lazily over the leaf nodes in a subtree of a trie, in trie order
+ * (depth first, siblings left to right). Nothing is allocated per node: pending
+ * siblings are kept on a stack whose size is bounded by the depth of the trie, so
+ * stopping after the first few completions costs only the nodes visited to find them.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class CompletionIterator implements Iterator<TrieNode> {
+
+	/**
+	 * Root of the subtree being iterated; its siblings are not part of it
+	 */
+	private TrieNode start;
+	
+	/**
+	 * Nodes still to be visited, top of stack is visited next
+	 */
+	private TrieNode[] stack = new TrieNode[16];
+	private int top;
+	
+	/**
+	 * Next leaf to be returned, null if there are no more
+	 */
+	private TrieNode next;
+	
+	/**
+	 * Number of leaves that may still be returned
+	 */
+	private int remaining;
+	
+	/**
+	 * Initializes to iterate over the leaves under a node.
+	 * 
+	 * @param start Node whose subtree is iterated over, or null for an empty iteration
+	 * @param limit Maximum number of leaves to return
+	 */
+	CompletionIterator(TrieNode start, int limit) {
+		this.start = start;
+		remaining = limit;
+		if (start != null) {
+			stack[top++] = start;
+		}
+		next = advance();
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext() {
+		return next != null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	public TrieNode next() {
+		if (next == null) {
+			throw new NoSuchElementException("no more completions");
+		}
+		TrieNode leaf = next;
+		next = advance();
+		return leaf;
+	}
+	
+	private TrieNode advance() {
+		if (remaining <= 0) {
+			return null;
+		}
+		while (top > 0) {
+			TrieNode node = stack[--top];
+			// the sibling goes under the first child, so the whole subtree comes first
+			if (node != start && node.sibling != null) {
+				push(node.sibling);
+			}
+			if (node.firstChild == null) {
+				remaining--;
+				return node;
+			}
+			push(node.firstChild);
+		}
+		return null;
+	}
+	
+	private void push(TrieNode node) {
+		if (top == stack.length) {
+			TrieNode[] bigger = new TrieNode[stack.length * 2];
+			System.arraycopy(stack, 0, bigger, 0, top);
+			stack = bigger;
+		}
+		stack[top++] = node;
+	}
+}
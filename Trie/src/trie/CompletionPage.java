@@ -0,0 +1,224 @@
+package trie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+
+/**
+ * This class holds a page of completions, in lexicographic order of their words, 
+ * with a token to get the page that follows it. The token encodes the last word on the
+ * page, so getting the next page starts by seeking to the first leaf after that word, 
+ * down a single path of the trie, instead of walking over all the earlier completions.
+ * Since the token holds a word, not a node, it stays good when words are inserted 
+ * into or deleted from the trie between pages.
+ * 
+ * Siblings in the trie are not in any order, so the next child in order is found by
+ * scanning the siblings at each level.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class CompletionPage {
+
+	/**
+	 * Leaf nodes on this page
+	 */
+	private ArrayList<TrieNode> completions;
+	
+	/**
+	 * Token for the next page, null if this is the last one
+	 */
+	private String token;
+	
+	/**
+	 * Words that have been inserted into the trie
+	 */
+	private String[] allWords;
+	
+	/**
+	 * Path from the prefix node down to the current leaf, path[0] is the prefix node
+	 */
+	private TrieNode[] path = new TrieNode[16];
+	private int depth;
+	
+	/**
+	 * Fills a page with the leaves that come after a word.
+	 * 
+	 * @param start Node whose subtree holds the completions, or null if there are none
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefixLength Length of the prefix being completed
+	 * @param after Last word of the previous page, or null for the first page
+	 * @param size Maximum number of completions on the page
+	 */
+	CompletionPage(TrieNode start, String[] allWords, int prefixLength, String after, int size) {
+		this.allWords = allWords;
+		completions = new ArrayList<TrieNode>(Math.min(size, 1024));
+		if (start == null) {
+			return;
+		}
+		path[depth++] = start;
+		boolean more;
+		if (after == null) {
+			leftmost();
+			more = true;
+		} else {
+			more = seek(after, prefixLength);
+		}
+		while (more && completions.size() < size) {
+			completions.add(path[depth-1]);
+			more = advance();
+		}
+		if (more) {
+			TrieNode last = completions.get(completions.size() - 1);
+			token = encode(allWords[last.substr.wordIndex]);
+		}
+	}
+	
+	/**
+	 * Returns the completions on this page.
+	 * 
+	 * @return Leaf nodes that hold words that start with the prefix, in lexicographic 
+	 * 			order of words (empty if there are none)
+	 */
+	public ArrayList<TrieNode> completions() {
+		return completions;
+	}
+	
+	/**
+	 * Returns the token to pass to Trie.completionPage for the next page.
+	 * 
+	 * @return Continuation token, or null if there are no more completions
+	 */
+	public String token() {
+		return token;
+	}
+	
+	/**
+	 * Tells whether there are completions after this page.
+	 * 
+	 * @return True if there is a next page
+	 */
+	public boolean hasMore() {
+		return token != null;
+	}
+	
+	/**
+	 * Moves the path to the first leaf whose word comes after a word, where the word 
+	 * and the leaves under the prefix node share the first prefixLength characters.
+	 * 
+	 * @return False if there is no such leaf
+	 */
+	private boolean seek(String after, int prefixLength) {
+		int level = prefixLength;  // characters of after known to match the path so far
+		TrieNode node = path[0];
+		while (true) {
+			String word = node.substr == null ? "" : allWords[node.substr.wordIndex];
+			int end = node.substr == null ? -1 : node.substr.endIndex;
+			int k = level;
+			while (k <= end && k < after.length() && word.charAt(k) == after.charAt(k)) {
+				k++;
+			}
+			if (k <= end) {  // differs within the node, so the whole subtree is on one side
+				if (k == after.length() || word.charAt(k) > after.charAt(k)) {
+					leftmost();
+					return true;
+				}
+				return advance();
+			}
+			if (node.firstChild == null) {  // the word is after itself, or a prefix of it
+				return advance();
+			}
+			if (k == after.length()) {
+				leftmost();
+				return true;
+			}
+			char c = after.charAt(k);
+			TrieNode child = Trie.child(node, allWords, c);
+			if (child == null) {
+				child = nextChild(node, c);
+				if (child == null) {
+					return advance();
+				}
+				push(child);
+				leftmost();
+				return true;
+			}
+			push(child);
+			node = child;
+			level = k + 1;
+		}
+	}
+	
+	/**
+	 * Extends the path from its last node down to the first leaf under it.
+	 */
+	private void leftmost() {
+		TrieNode node = path[depth-1];
+		while (node.firstChild != null) {
+			node = nextChild(node, -1);
+			push(node);
+		}
+	}
+	
+	/**
+	 * Moves the path from its leaf to the next leaf in order, going up as far as needed
+	 * to find a next sibling.
+	 * 
+	 * @return False if there are no more leaves
+	 */
+	private boolean advance() {
+		while (depth > 1) {
+			TrieNode node = path[--depth];
+			TrieNode next = nextChild(path[depth-1], firstChar(node));
+			if (next != null) {
+				push(next);
+				leftmost();
+				return true;
+			}
+		}
+		depth = 0;
+		return false;
+	}
+	
+	/**
+	 * Returns the child with the smallest first character greater than a character.
+	 * 
+	 * @return Child, or null if there is none
+	 */
+	private TrieNode nextChild(TrieNode parent, int after) {
+		TrieNode next = null;
+		int best = Character.MAX_VALUE + 1;
+		for (TrieNode ptr = parent.firstChild; ptr != null; ptr = ptr.sibling) {
+			int c = firstChar(ptr);
+			if (c > after && c < best) {
+				next = ptr;
+				best = c;
+			}
+		}
+		return next;
+	}
+	
+	private char firstChar(TrieNode node) {
+		return allWords[node.substr.wordIndex].charAt(node.substr.startIndex);
+	}
+	
+	private void push(TrieNode node) {
+		if (depth == path.length) {
+			TrieNode[] bigger = new TrieNode[depth * 2];
+			System.arraycopy(path, 0, bigger, 0, depth);
+			path = bigger;
+		}
+		path[depth++] = node;
+	}
+	
+	static String encode(String word) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(word.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	/**
+	 * @throws IllegalArgumentException If the token is not one made by encode
+	 */
+	static String decode(String token) {
+		return new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,306 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This class is a trie that can be read by any number of threads while a writer 
+ * inserts or deletes words. Nodes are never changed once they are reachable by 
+ * readers: a writer copies the path from the root down to the nodes it changes 
+ * (path copying), and then publishes the new root with a single atomic store. 
+ * 
+ * A reader takes the current snapshot (one atomic load) and works on it without 
+ * locks or retries, so lookups and completions are wait-free, and each one sees 
+ * the trie exactly as it was after some complete update: never a half-split node. 
+ * Writers are serialized by a lock.
+ * 
+ * An update copies one node per level, along with the siblings before it in its
+ * parent's list (and the parent's child index, if it has one); everything else is
+ * shared with the previous snapshot.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class ConcurrentTrie {
+
+	/**
+	 * An immutable version of the trie: the root, and the words its nodes refer to
+	 */
+	private static class Snapshot {
+		final TrieNode root;
+		final String[] words;  // only indexes below used are valid in this snapshot
+		final int used;
+		final int size;
+		
+		Snapshot(TrieNode root, String[] words, int used, int size) {
+			this.root = root;
+			this.words = words;
+			this.used = used;
+			this.size = size;
+		}
+	}
+	
+	/**
+	 * Current snapshot
+	 */
+	private final AtomicReference<Snapshot> current;
+	
+	/**
+	 * Initializes an empty trie.
+	 */
+	public ConcurrentTrie() {
+		current = new AtomicReference<Snapshot>(
+				new Snapshot(new TrieNode(null, null, null), new String[16], 0, 0));
+	}
+	
+	/**
+	 * Initializes with all words in an array, inserted in sequence as by Trie.buildTrie.
+	 * 
+	 * @param allWords Words (lowercase), none a prefix of another
+	 * @throws IllegalArgumentException If a word is empty, or is a prefix of another word
+	 */
+	public ConcurrentTrie(String[] allWords) {
+		String[] words = Arrays.copyOf(allWords, Math.max(16, allWords.length));
+		TrieNode root = Trie.buildTrie(allWords);
+		int size = 0;
+		for (Iterator<TrieNode> it = Trie.completions(root, words, ""); it.hasNext(); it.next()) {
+			size++;  // duplicates in allWords are only in the trie once
+		}
+		current = new AtomicReference<Snapshot>(new Snapshot(root, words, allWords.length, size));
+	}
+	
+	/**
+	 * Inserts a word.
+	 * 
+	 * @param word Word (lowercase) to be inserted
+	 * @return True if the word was inserted, false if it was already in the trie
+	 * @throws IllegalArgumentException If the word is empty, or is a prefix of a word 
+	 * 			in the trie, or a word in the trie is a prefix of it
+	 */
+	public synchronized boolean insert(String word) {
+		if (word.length() == 0) {
+			throw new IllegalArgumentException("empty word");
+		}
+		Snapshot s = current.get();
+		String[] words = s.words;
+		if (s.used == words.length) {
+			words = Arrays.copyOf(words, words.length * 2);
+		}
+		// no snapshot that is out there reads this slot, it is past their used
+		words[s.used] = word;
+		TrieNode root = insert(s.root, words, s.used, 0);
+		if (root == null) {
+			return false;
+		}
+		current.set(new Snapshot(root, words, s.used + 1, s.size + 1));
+		return true;
+	}
+	
+	/**
+	 * Deletes a word. The word stays in the words array, since older snapshots may 
+	 * still refer to it.
+	 * 
+	 * @param word Word to be deleted
+	 * @return True if the word was deleted, false if it was not in the trie
+	 */
+	public synchronized boolean delete(String word) {
+		Snapshot s = current.get();
+		TrieNode root = delete(s.root, s.words, word, 0, new int[1]);
+		if (root == null) {
+			return false;
+		}
+		current.set(new Snapshot(root, s.words, s.used, s.size - 1));
+		return true;
+	}
+	
+	/**
+	 * Tells whether a word is in the trie.
+	 * 
+	 * @param word Word to look up
+	 * @return True if the word is in the trie
+	 */
+	public boolean contains(String word) {
+		Snapshot s = current.get();
+		TrieNode node = Trie.find(s.root, s.words, word);
+		return node != null && node.firstChild == null && node.substr.endIndex == word.length() - 1;
+	}
+	
+	/**
+	 * Returns the number of words in the trie.
+	 * 
+	 * @return Number of words
+	 */
+	public int size() {
+		return current.get().size;
+	}
+	
+	/**
+	 * Returns the completion list for a prefix, from a single snapshot.
+	 * 
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return All words that start with the prefix, in trie order, or null if there 
+	 * 			are none
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		return completionList(prefix, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns at most limit completions for a prefix, from a single snapshot.
+	 * 
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param limit Maximum number of completions
+	 * @return The first (at most) limit words that start with the prefix, in trie order, 
+	 * 			or null if there are none
+	 */
+	public ArrayList<String> completionList(String prefix, int limit) {
+		Snapshot s = current.get();
+		ArrayList<String> list = new ArrayList<String>();
+		for (Iterator<TrieNode> it = Trie.completions(s.root, s.words, prefix, limit); it.hasNext(); ) {
+			list.add(s.words[it.next().substr.wordIndex]);
+		}
+		return list.isEmpty() ? null : list;
+	}
+	
+	/**
+	 * Returns a copy of a node (which has children starting at level) with the word
+	 * at index i inserted below it, or null if the word is already there.
+	 */
+	private static TrieNode insert(TrieNode node, String[] words, int i, int level) {
+		String word = words[i];
+		TrieNode ptr = Trie.child(node, words, word.charAt(level));
+		if (ptr == null) { //No prefix found, add the new word to the end of the row
+			TrieNode leaf = new TrieNode(new Indexes(i, (short) level, (short) (word.length() - 1)), null, null);
+			return replaceChild(node, words, null, leaf);
+		}
+		String ptrWord = words[ptr.substr.wordIndex];
+		int end = ptr.substr.endIndex;
+		int k = level + 1;
+		while (k <= end && k < word.length() && word.charAt(k) == ptrWord.charAt(k)) {
+			k++;
+		}
+		TrieNode replacement;
+		if (k > end && k == word.length() && ptr.firstChild == null) { //Same word
+			return null;
+		} else if (k == word.length() || (k > end && ptr.firstChild == null)) {
+			throw new IllegalArgumentException("\"" + word + "\" and \"" + ptrWord
+					+ "\": no word in a trie may be a prefix of another");
+		} else if (k > end) { //The entire prefix matched, so insert below
+			replacement = insert(ptr, words, i, end + 1);
+			if (replacement == null) {
+				return null;
+			}
+		} else { //Only part of it matched, so split (a copy of) the node
+			TrieNode leaf = new TrieNode(new Indexes(i, (short) k, (short) (word.length() - 1)), null, null);
+			TrieNode rest = new TrieNode(new Indexes(ptr.substr.wordIndex, (short) k, ptr.substr.endIndex),
+					ptr.firstChild, leaf);
+			rest.children = ptr.children;
+			rest.maxWeight = ptr.maxWeight;
+			replacement = new TrieNode(new Indexes(ptr.substr.wordIndex, ptr.substr.startIndex, (short) (k - 1)),
+					rest, null);
+			replacement.maxWeight = ptr.maxWeight;
+		}
+		return replaceChild(node, words, ptr, replacement);
+	}
+	
+	/**
+	 * Returns a copy of a node (which has children starting at level) with a word
+	 * deleted below it, or null if the word is not there. The index of the deleted
+	 * word is left in deleted[0].
+	 */
+	private static TrieNode delete(TrieNode node, String[] words, String word, int level, int[] deleted) {
+		if (level >= word.length()) {
+			return null;
+		}
+		TrieNode ptr = Trie.child(node, words, word.charAt(level));
+		if (ptr == null) {
+			return null;
+		}
+		int end = ptr.substr.endIndex;
+		if (!words[ptr.substr.wordIndex].regionMatches(level, word, level, end - level + 1)) {
+			return null;
+		}
+		TrieNode copy;
+		if (ptr.firstChild == null) {
+			if (end + 1 != word.length()) {
+				return null;
+			}
+			deleted[0] = ptr.substr.wordIndex;
+			copy = replaceChild(node, words, ptr, null);
+		} else {
+			TrieNode replacement = delete(ptr, words, word, end + 1, deleted);
+			if (replacement == null) {
+				return null;
+			}
+			copy = replaceChild(node, words, ptr, replacement);
+		}
+		if (node.substr == null) {  // the root is never merged
+			return copy;
+		}
+		if (copy.firstChild.sibling == null) { //One child left, merge it in
+			TrieNode child = copy.firstChild;
+			TrieNode merged = new TrieNode(new Indexes(child.substr.wordIndex, node.substr.startIndex, child.substr.endIndex),
+					child.firstChild, null);
+			merged.children = child.children;
+			merged.maxWeight = node.maxWeight;
+			return merged;
+		}
+		if (copy.substr.wordIndex == deleted[0]) {
+			// every node's word is in its subtree, so a child's word can stand in
+			copy.substr.wordIndex = copy.firstChild.substr.wordIndex;
+		}
+		return copy;
+	}
+	
+	/**
+	 * Returns a copy of a node, with one child replaced (or removed, if replacement 
+	 * is null), or with a child appended (if old is null). Children before the old 
+	 * one are copied, since their sibling links change; the ones after are shared.
+	 */
+	private static TrieNode replaceChild(TrieNode node, String[] words, TrieNode old, TrieNode replacement) {
+		TrieNode copy = new TrieNode(node.substr == null ? null :
+				new Indexes(node.substr.wordIndex, node.substr.startIndex, node.substr.endIndex), null, null);
+		copy.maxWeight = node.maxWeight;
+		TrieNode prev = null;
+		for (TrieNode ptr = node.firstChild; ptr != old; ptr = ptr.sibling) {
+			TrieNode c = new TrieNode(ptr.substr, ptr.firstChild, null);
+			c.children = ptr.children;
+			c.maxWeight = ptr.maxWeight;
+			prev = link(copy, prev, c);
+		}
+		TrieNode rest = old == null ? null : old.sibling;
+		if (replacement != null) {
+			replacement.sibling = rest;
+			prev = link(copy, prev, replacement);
+		} else if (prev == null) {
+			copy.firstChild = rest;
+		} else {
+			prev.sibling = rest;
+		}
+		
+		int count = 0;
+		for (TrieNode ptr = copy.firstChild; ptr != null; ptr = ptr.sibling) {
+			count++;
+		}
+		if (count >= ChildIndex.MIN_CHILDREN) {
+			ChildIndex index = new ChildIndex();
+			for (TrieNode ptr = copy.firstChild; ptr != null; ptr = ptr.sibling) {
+				index.put(words[ptr.substr.wordIndex].charAt(ptr.substr.startIndex), ptr);
+				index.last = ptr;
+			}
+			copy.children = index;
+		}
+		return copy;
+	}
+	
+	private static TrieNode link(TrieNode parent, TrieNode prev, TrieNode child) {
+		if (prev == null) {
+			parent.firstChild = child;
+		} else {
+			prev.sibling = child;
+		}
+		return child;
+	}
+}
@@ -0,0 +1,269 @@
+package trie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class implements a minimized DAWG (directed acyclic word graph): an automaton
+ * that accepts exactly a set of words, with the fewest possible states. Like a trie
+ * it shares common prefixes, but it also shares common suffixes, so that all the 
+ * words ending in, say, "ing" or "tion" end in the same few states.
+ * 
+ * It is built from words in lexicographic order, with incremental minimization 
+ * (Daciuk et al.): once a word has been added, the states on the path of the 
+ * previous word that are not on its path can no longer change, so each is replaced 
+ * by an equivalent state already registered (same finality, same transitions), or is
+ * registered itself. The automaton is minimal at every step, and building takes time
+ * linear in the total length of the words.
+ * 
+ * Unlike the compressed trie, a word may be a prefix of another word.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class Dawg {
+
+	/**
+	 * A state, with transitions sorted by label
+	 */
+	private static class State {
+		char[] labels = new char[2];
+		State[] targets = new State[2];
+		int count;
+		boolean isFinal;
+		
+		State next(char c) {
+			int i = Arrays.binarySearch(labels, 0, count, c);
+			return i < 0 ? null : targets[i];
+		}
+		
+		void add(char c, State target) {
+			if (count == labels.length) {
+				labels = Arrays.copyOf(labels, count * 2);
+				targets = Arrays.copyOf(targets, count * 2);
+			}
+			labels[count] = c;
+			targets[count++] = target;
+		}
+		
+		void trim() {
+			labels = Arrays.copyOf(labels, count);
+			targets = Arrays.copyOf(targets, count);
+		}
+		
+		/**
+		 * Two states are equivalent if they are both final or both not, and have the 
+		 * same labels going to the SAME (identical) states. Only registered states are
+		 * targets, so this identifies states that accept the same suffixes.
+		 * 
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		public boolean equals(Object o) {
+			if (!(o instanceof State)) {
+				return false;
+			}
+			State s = (State)o;
+			if (isFinal != s.isFinal || count != s.count) {
+				return false;
+			}
+			for (int i = 0; i < count; i++) {
+				if (labels[i] != s.labels[i] || targets[i] != s.targets[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		public int hashCode() {
+			int h = isFinal ? 1 : 0;
+			for (int i = 0; i < count; i++) {
+				h = h * 31 + labels[i];
+				h = h * 31 + System.identityHashCode(targets[i]);
+			}
+			return h;
+		}
+	}
+	
+	/**
+	 * Start state
+	 */
+	private State root;
+	
+	/**
+	 * Number of words, states and transitions
+	 */
+	private int size;
+	private int states;
+	private long transitions;
+	
+	private Dawg() { }
+	
+	/**
+	 * Builds a minimized DAWG for words in lexicographic order. Repeated words are
+	 * taken once.
+	 * 
+	 * @param sortedWords Words, in lexicographic order
+	 * @return DAWG that accepts exactly these words
+	 * @throws IllegalArgumentException If the words are not sorted
+	 */
+	public static Dawg build(String[] sortedWords) {
+		Dawg d = new Dawg();
+		d.root = new State();
+		HashMap<State, State> register = new HashMap<State, State>();
+		String prevWord = null;
+		for (String word : sortedWords) {
+			if (prevWord != null) {
+				int cmp = word.compareTo(prevWord);
+				if (cmp < 0) {
+					throw new IllegalArgumentException("words are not sorted: \"" + prevWord 
+							+ "\" comes before \"" + word + "\"");
+				}
+				if (cmp == 0) {
+					continue;
+				}
+			}
+			
+			// follow the common prefix, which is all on the path of the previous word
+			State state = d.root;
+			int k = 0;
+			while (k < word.length()) {
+				State next = state.next(word.charAt(k));
+				if (next == null) {
+					break;
+				}
+				state = next;
+				k++;
+			}
+			if (state.count > 0) {
+				replaceOrRegister(state, register);
+			}
+			for (; k < word.length(); k++) {
+				State next = new State();
+				state.add(word.charAt(k), next);
+				state = next;
+			}
+			state.isFinal = true;
+			d.size++;
+			prevWord = word;
+		}
+		if (d.root.count > 0) {
+			replaceOrRegister(d.root, register);
+		}
+		d.root.trim();
+		d.states = register.size() + 1;
+		d.transitions = d.root.count;
+		for (State s : register.keySet()) {
+			d.transitions += s.count;
+		}
+		return d;
+	}
+	
+	/**
+	 * Minimizes the states below the last transition of a state, bottom up.
+	 */
+	private static void replaceOrRegister(State state, HashMap<State, State> register) {
+		State child = state.targets[state.count - 1];
+		if (child.count > 0) {
+			replaceOrRegister(child, register);
+		}
+		State same = register.get(child);
+		if (same != null) {
+			state.targets[state.count - 1] = same;
+		} else {
+			child.trim();
+			register.put(child, child);
+		}
+	}
+	
+	/**
+	 * Tells whether a word is in the DAWG.
+	 * 
+	 * @param word Word to look up
+	 * @return True if the word was one of the words it was built from
+	 */
+	public boolean contains(String word) {
+		State state = walk(word);
+		return state != null && state.isFinal;
+	}
+	
+	/**
+	 * Returns the completion list for a prefix. Since states are shared between words,
+	 * words are spelled out as the DAWG is walked, rather than referred to by index.
+	 * 
+	 * @param prefix Prefix to be completed with words
+	 * @return All words that start with the prefix, in lexicographic order, or null if 
+	 * 			there are none
+	 */
+	public ArrayList<String> completionList(String prefix) {
+		State state = walk(prefix);
+		if (state == null) {
+			return null;
+		}
+		ArrayList<String> list = new ArrayList<String>();
+		collect(state, new StringBuilder(prefix), list);
+		return list.isEmpty() ? null : list;
+	}
+	
+	private static void collect(State state, StringBuilder word, ArrayList<String> list) {
+		if (state.isFinal) {
+			list.add(word.toString());
+		}
+		for (int i = 0; i < state.count; i++) {
+			word.append(state.labels[i]);
+			collect(state.targets[i], word, list);
+			word.setLength(word.length() - 1);
+		}
+	}
+	
+	private State walk(String s) {
+		State state = root;
+		for (int k = 0; k < s.length() && state != null; k++) {
+			state = state.next(s.charAt(k));
+		}
+		return state;
+	}
+	
+	/**
+	 * Returns the number of words.
+	 * 
+	 * @return Number of words
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Returns the number of states (nodes), including the start state.
+	 * 
+	 * @return Number of states
+	 */
+	public int stateCount() {
+		return states;
+	}
+	
+	/**
+	 * Returns the number of transitions (edges), one per character.
+	 * 
+	 * @return Number of transitions
+	 */
+	public long transitionCount() {
+		return transitions;
+	}
+	
+	/**
+	 * Estimates the number of bytes taken by the DAWG, as PackedTrie.objectBytes does
+	 * for the trie: per state, a State object (12 byte header, 2 references, an int 
+	 * and a boolean, rounded up to 32 bytes) and its two arrays (16 byte headers), and 
+	 * per transition, a label (2 bytes) and a target (4 bytes). Unlike the trie, this 
+	 * includes the characters of the words, since there is no separate array of words.
+	 * 
+	 * @return Estimated memory used by the DAWG
+	 */
+	public long bytes() {
+		return (32L + 16 + 16) * states + (2L + 4) * transitions;
+	}
+}
@@ -0,0 +1,263 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * This class finds the words that contain a substring anywhere, not just at the start,
+ * with a suffix array over all the words of a trie's word array. The words are put 
+ * one after another, with a separator after each, in a single text; the suffix array
+ * holds the start positions of all suffixes of the text in lexicographic order, so the 
+ * suffixes that start with a query are contiguous in it, and are found with binary 
+ * search. The LCP array (length of the longest common prefix of each suffix and the 
+ * one before it in the suffix array) then gives the end of the run without a second 
+ * search.
+ * 
+ * The suffix array is built by prefix doubling with radix sorts, in O(n log n) time for 
+ * a text of n characters, and the LCP array with Kasai's algorithm, in O(n) time. A query
+ * of length m takes O(m log n + occ) time for occ occurrences.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class InfixIndex {
+
+	/**
+	 * Text: characters of all words plus one, with 0 after each word as separator
+	 */
+	private int[] text;
+	
+	/**
+	 * Suffix array, and LCP array: lcp[i] is the common prefix length of the suffixes 
+	 * at sa[i-1] and sa[i] (0 for i = 0)
+	 */
+	private int[] sa;
+	private int[] lcp;
+	
+	/**
+	 * Word index of each position in the text
+	 */
+	private int[] wordOf;
+	
+	/**
+	 * Number of words, and for each word, the number of the last search that found it,
+	 * so that a word with several occurrences is returned once
+	 */
+	private int wordCount;
+	private int[] seen;
+	private int searches;
+	
+	/**
+	 * Builds the index for an array of words.
+	 * 
+	 * @param allWords Array of words, as for Trie.buildTrie (null entries, for unused 
+	 * 			word indexes, are taken as empty words)
+	 */
+	public InfixIndex(String[] allWords) {
+		int n = 0;
+		for (String word : allWords) {
+			n += (word == null ? 0 : word.length()) + 1;
+		}
+		text = new int[n];
+		wordOf = new int[n];
+		int pos = 0;
+		for (int w = 0; w < allWords.length; w++) {
+			for (int k = 0; allWords[w] != null && k < allWords[w].length(); k++) {
+				wordOf[pos] = w;
+				text[pos++] = allWords[w].charAt(k) + 1;
+			}
+			wordOf[pos] = w;
+			text[pos++] = 0;
+		}
+		wordCount = allWords.length;
+		seen = new int[wordCount];
+		sa = suffixArray(text, Character.MAX_VALUE + 2);
+		lcp = lcpArray(text, sa);
+	}
+	
+	/**
+	 * Returns the words that contain a substring.
+	 * 
+	 * @param infix Substring to search for
+	 * @return Indexes of all words that contain the substring, each once, in the 
+	 * 			lexicographic order of the text that follows their first found occurrence, 
+	 * 			or null if there are none
+	 */
+	public synchronized int[] search(String infix) {
+		int first = lowerBound(infix);
+		int m = infix.length();
+		if (first == sa.length || !startsWith(sa[first], infix)) {
+			return null;
+		}
+		if (++searches == 0) {  // wrapped around, start the stamps over
+			Arrays.fill(seen, 0);
+			searches = 1;
+		}
+		int[] words = new int[16];
+		int count = 0;
+		for (int i = first; i < sa.length && (i == first || lcp[i] >= m); i++) {
+			int w = wordOf[sa[i]];
+			if (seen[w] != searches) {
+				seen[w] = searches;
+				if (count == words.length) {
+					words = Arrays.copyOf(words, count * 2);
+				}
+				words[count++] = w;
+			}
+		}
+		return Arrays.copyOf(words, count);
+	}
+	
+	/**
+	 * Returns the number of occurrences of a substring in all words.
+	 * 
+	 * @param infix Substring to search for
+	 * @return Number of occurrences (a word may have more than one)
+	 */
+	public int count(String infix) {
+		int first = lowerBound(infix);
+		int i = first;
+		if (i < sa.length && startsWith(sa[i], infix)) {
+			i++;
+			while (i < sa.length && lcp[i] >= infix.length()) {
+				i++;
+			}
+		}
+		return i - first;
+	}
+	
+	/**
+	 * Finds the first suffix, in suffix array order, that is not less than the query.
+	 * The binary search skips the characters that are known to match at both ends of 
+	 * the range (the smaller of the two matches).
+	 */
+	private int lowerBound(String q) {
+		int lo = 0, hi = sa.length;  // answer in [lo, hi]
+		int loMatch = 0, hiMatch = 0;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			int k = Math.min(loMatch, hiMatch);
+			int p = sa[mid];
+			while (k < q.length() && p + k < text.length && text[p + k] == q.charAt(k) + 1) {
+				k++;
+			}
+			if (k == q.length() || (p + k < text.length && text[p + k] > q.charAt(k) + 1)) {
+				hi = mid;  // suffix >= query
+				hiMatch = k;
+			} else {
+				lo = mid + 1;
+				loMatch = k;
+			}
+		}
+		return lo;
+	}
+	
+	private boolean startsWith(int p, String q) {
+		for (int k = 0; k < q.length(); k++) {
+			if (p + k >= text.length || text[p + k] != q.charAt(k) + 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Builds the suffix array by prefix doubling: suffixes sorted by their first k
+	 * characters are sorted by their first 2k with a radix sort on (rank of first k, 
+	 * rank of next k), until all ranks are distinct.
+	 */
+	static int[] suffixArray(int[] s, int alphabet) {
+		int n = s.length;
+		int[] sa = new int[n];
+		int[] rank = new int[n];
+		int[] tmp = new int[n];
+		int[] counts = new int[Math.max(alphabet, n) + 1];
+		
+		for (int i = 0; i < n; i++) {
+			counts[s[i]]++;
+		}
+		for (int c = 1; c < counts.length; c++) {
+			counts[c] += counts[c-1];
+		}
+		for (int i = n - 1; i >= 0; i--) {
+			sa[--counts[s[i]]] = i;
+		}
+		int classes = 0;
+		for (int i = 0; i < n; i++) {
+			if (i > 0 && s[sa[i]] != s[sa[i-1]]) {
+				classes++;
+			}
+			rank[sa[i]] = classes;
+		}
+		classes++;
+		
+		for (int k = 1; classes < n; k <<= 1) {
+			// order by second key: suffixes with nothing k ahead come first
+			int p = 0;
+			for (int i = n - k; i < n; i++) {
+				tmp[p++] = i;
+			}
+			for (int i = 0; i < n; i++) {
+				if (sa[i] >= k) {
+					tmp[p++] = sa[i] - k;
+				}
+			}
+			// stable counting sort by first key
+			Arrays.fill(counts, 0, classes + 1, 0);
+			for (int i = 0; i < n; i++) {
+				counts[rank[i]]++;
+			}
+			for (int c = 1; c < classes; c++) {
+				counts[c] += counts[c-1];
+			}
+			for (int i = n - 1; i >= 0; i--) {
+				sa[--counts[rank[tmp[i]]]] = tmp[i];
+			}
+			// new ranks, into tmp
+			tmp[sa[0]] = 0;
+			classes = 1;
+			for (int i = 1; i < n; i++) {
+				int a = sa[i-1], b = sa[i];
+				int a2 = a + k < n ? rank[a + k] : -1;
+				int b2 = b + k < n ? rank[b + k] : -1;
+				if (rank[a] != rank[b] || a2 != b2) {
+					classes++;
+				}
+				tmp[b] = classes - 1;
+			}
+			int[] t = rank;
+			rank = tmp;
+			tmp = t;
+		}
+		return sa;
+	}
+	
+	/**
+	 * Builds the LCP array with Kasai's algorithm: going through suffixes in text order,
+	 * the common prefix with the preceding suffix in the suffix array shrinks by at 
+	 * most one from one suffix to the next.
+	 */
+	static int[] lcpArray(int[] s, int[] sa) {
+		int n = s.length;
+		int[] rank = new int[n];
+		for (int i = 0; i < n; i++) {
+			rank[sa[i]] = i;
+		}
+		int[] lcp = new int[n];
+		int h = 0;
+		for (int i = 0; i < n; i++) {
+			if (rank[i] == 0) {
+				h = 0;
+				continue;
+			}
+			int j = sa[rank[i] - 1];
+			while (i + h < n && j + h < n && s[i + h] == s[j + h]) {
+				h++;
+			}
+			lcp[rank[i]] = h;
+			if (h > 0) {
+				h--;
+			}
+		}
+		return lcp;
+	}
+}
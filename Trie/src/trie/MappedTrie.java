@@ -0,0 +1,284 @@
+package trie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * This class answers completion queries directly from a trie image file, which is
+ * memory mapped, not read: no TrieNode (or any other per node or per word object) is
+ * created, so a trie of any size is ready as soon as the file is mapped, and pages
+ * of it are brought into memory only as queries touch them.
+ * 
+ * An image holds the words and the packed nodes of a trie (see PackedTrie), all big 
+ * endian:
+ * <pre>
+ *     header:   magic ("TRIE"), version, number of words, number of nodes (4 ints)
+ *     offsets:  start of each word in the characters section, plus the end (ints)
+ *     nodes:    word index (int), start index (short), end index (short),
+ *               first child (int), sibling (int), for each node; node 0 is the root
+ *     chars:    characters of all words (UTF-16 chars, 2 bytes each)
+ * </pre>
+ * Words are stored as chars so that a node's start and end indexes can be used on 
+ * them directly. An image must be smaller than 2GB.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class MappedTrie {
+
+	private static final int MAGIC = 0x54524945;  // "TRIE"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 16;
+	private static final int NODE_BYTES = 16;
+	
+	private static final int NIL = PackedTrie.NIL;
+	
+	/**
+	 * The mapped image
+	 */
+	private MappedByteBuffer buf;
+	
+	/**
+	 * Number of words and nodes, and positions of the sections in the image
+	 */
+	private int wordCount;
+	private int nodeCount;
+	private int offsetsBase;
+	private int nodesBase;
+	private int charsBase;
+	
+	private MappedTrie() { }
+	
+	/**
+	 * Writes an image of a trie.
+	 * 
+	 * @param fileName Name of image file
+	 * @param root Root of trie
+	 * @param allWords Array of words that have been inserted into the trie (null 
+	 * 			entries, for unused word indexes, are stored as empty words)
+	 * @throws IOException If there is a problem writing the file
+	 */
+	public static void write(String fileName, TrieNode root, String[] allWords) 
+	throws IOException {
+		write(fileName, PackedTrie.pack(root), allWords);
+	}
+	
+	/**
+	 * Writes an image of a packed trie.
+	 * 
+	 * @param fileName Name of image file
+	 * @param trie Packed trie
+	 * @param allWords Array of words that have been inserted into the trie (null 
+	 * 			entries, for unused word indexes, are stored as empty words)
+	 * @throws IOException If there is a problem writing the file
+	 */
+	public static void write(String fileName, PackedTrie trie, String[] allWords) 
+	throws IOException {
+		long chars = 0;
+		for (String word : allWords) {
+			chars += word == null ? 0 : word.length();
+		}
+		long size = HEADER_BYTES + 4L * (allWords.length + 1) + (long)NODE_BYTES * trie.size + 2 * chars;
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("trie image would be " + size + " bytes, the limit is 2GB");
+		}
+		
+		try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			ByteBuffer out = ByteBuffer.allocate(1 << 16);
+			out.putInt(MAGIC).putInt(VERSION).putInt(allWords.length).putInt(trie.size);
+			int offset = 0;
+			for (int i = 0; i <= allWords.length; i++) {
+				out = flushIfFull(ch, out, 4);
+				out.putInt(offset);
+				if (i < allWords.length && allWords[i] != null) {
+					offset += allWords[i].length();
+				}
+			}
+			for (int n = 0; n < trie.size; n++) {
+				out = flushIfFull(ch, out, NODE_BYTES);
+				out.putInt(trie.wordIndex[n]).putShort(trie.startIndex[n]).putShort(trie.endIndex[n])
+					.putInt(trie.firstChild[n]).putInt(trie.sibling[n]);
+			}
+			for (String word : allWords) {
+				for (int k = 0; word != null && k < word.length(); k++) {
+					out = flushIfFull(ch, out, 2);
+					out.putChar(word.charAt(k));
+				}
+			}
+			out.flip();
+			while (out.hasRemaining()) {
+				ch.write(out);
+			}
+		}
+	}
+	
+	private static ByteBuffer flushIfFull(FileChannel ch, ByteBuffer out, int needed) 
+	throws IOException {
+		if (out.remaining() < needed) {
+			out.flip();
+			while (out.hasRemaining()) {
+				ch.write(out);
+			}
+			out.clear();
+		}
+		return out;
+	}
+	
+	/**
+	 * Maps a trie image.
+	 * 
+	 * @param fileName Name of image file, as written by write
+	 * @return Mapped trie
+	 * @throws IOException If there is a problem mapping the file, or it is not a 
+	 * 			trie image
+	 */
+	public static MappedTrie load(String fileName) 
+	throws IOException {
+		MappedTrie t = new MappedTrie();
+		try (FileChannel ch = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+			long size = ch.size();
+			if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+				throw new IOException(fileName + " is not a trie image");
+			}
+			// the mapping stays valid after the channel is closed
+			t.buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		if (t.buf.getInt(0) != MAGIC || t.buf.getInt(4) != VERSION) {
+			throw new IOException(fileName + " is not a trie image (or is of another version)");
+		}
+		t.wordCount = t.buf.getInt(8);
+		t.nodeCount = t.buf.getInt(12);
+		t.offsetsBase = HEADER_BYTES;
+		t.nodesBase = t.offsetsBase + 4 * (t.wordCount + 1);
+		t.charsBase = t.nodesBase + NODE_BYTES * t.nodeCount;
+		if (t.wordCount < 0 || t.nodeCount < 1 || t.charsBase > t.buf.capacity()
+				|| t.charsBase + 2L * t.buf.getInt(t.nodesBase - 4) != t.buf.capacity()) {
+			throw new IOException(fileName + " is not a trie image (or is truncated)");
+		}
+		return t;
+	}
+	
+	/**
+	 * Returns the number of words (word indexes) in the image.
+	 * 
+	 * @return Number of words
+	 */
+	public int size() {
+		return wordCount;
+	}
+	
+	/**
+	 * Returns a word.
+	 * 
+	 * @param index Word index
+	 * @return Word
+	 */
+	public String word(int index) {
+		int from = offset(index);
+		int to = offset(index + 1);
+		char[] chars = new char[to - from];
+		for (int k = 0; k < chars.length; k++) {
+			chars[k] = buf.getChar(charsBase + 2 * (from + k));
+		}
+		return new String(chars);
+	}
+	
+	/**
+	 * Returns the completion list for a prefix, like Trie.completionList, as the 
+	 * indexes of the matching words, read straight from the image.
+	 * 
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Indexes of all words that start with the prefix, in trie order, or null 
+	 * 			if there are none
+	 */
+	public int[] completionList(String prefix) {
+		int node = find(prefix);
+		if (node == NIL) {
+			return null;
+		}
+		int[] matches = new int[16];
+		int count = 0;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = node;
+		while (top > 0) {
+			int n = stack[--top];
+			// the sibling goes under the first child, so the whole subtree comes first
+			if (n != node && sibling(n) != NIL) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = sibling(n);
+			}
+			if (firstChild(n) == NIL) {
+				if (count == matches.length) {
+					matches = Arrays.copyOf(matches, count * 2);
+				}
+				matches[count++] = wordIndex(n);
+				continue;
+			}
+			if (top == stack.length) {
+				stack = Arrays.copyOf(stack, top * 2);
+			}
+			stack[top++] = firstChild(n);
+		}
+		return Arrays.copyOf(matches, count);
+	}
+	
+	private int find(String prefix) {
+		if (firstChild(0) == NIL) {
+			return NIL;
+		}
+		int node = 0;
+		int level = 0;
+		while (level < prefix.length()) {
+			int ptr = firstChild(node);
+			while (ptr != NIL && charAt(wordIndex(ptr), level) != prefix.charAt(level)) {
+				ptr = sibling(ptr);
+			}
+			if (ptr == NIL) {
+				return NIL;
+			}
+			int word = wordIndex(ptr);
+			int end = endIndex(ptr);
+			for (int k = level + 1; k <= end && k < prefix.length(); k++) {
+				if (charAt(word, k) != prefix.charAt(k)) {
+					return NIL;
+				}
+			}
+			node = ptr;
+			level = end + 1;
+		}
+		return node;
+	}
+	
+	private int offset(int word) {
+		return buf.getInt(offsetsBase + 4 * word);
+	}
+	
+	private char charAt(int word, int k) {
+		return buf.getChar(charsBase + 2 * (offset(word) + k));
+	}
+	
+	private int wordIndex(int node) {
+		return buf.getInt(nodesBase + NODE_BYTES * node);
+	}
+	
+	private int endIndex(int node) {
+		return buf.getShort(nodesBase + NODE_BYTES * node + 6);
+	}
+	
+	private int firstChild(int node) {
+		return buf.getInt(nodesBase + NODE_BYTES * node + 8);
+	}
+	
+	private int sibling(int node) {
+		return buf.getInt(nodesBase + NODE_BYTES * node + 12);
+	}
+}
@@ -0,0 +1,336 @@
+package trie;
+
+import java.util.Arrays;
+
+/**
+ * This class implements the same compressed trie as Trie/TrieNode, but with all nodes
+ * packed into parallel primitive arrays instead of a TrieNode and an Indexes object per
+ * node. A node is an int: its word index, start index, end index, first child and
+ * sibling are at that position in the arrays. Node 0 is the root, and NIL (-1) stands
+ * for a null reference.
+ *
+ * Packed, a node takes 16 bytes, against about 56 bytes for a TrieNode with its Indexes
+ * (two object headers, four references, two ints and two shorts), and traversals run
+ * over contiguous arrays instead of chasing references.
+ *
+ * @author Sesh Venugopal
+ *
+ */
+public class PackedTrie {
+
+	/**
+	 * Null node reference
+	 */
+	public static final int NIL = -1;
+
+	/**
+	 * Node fields, indexed by node
+	 */
+	int[] wordIndex;
+	short[] startIndex;
+	short[] endIndex;
+	int[] firstChild;
+	int[] sibling;
+
+	/**
+	 * Number of nodes, including the root
+	 */
+	int size;
+
+	private PackedTrie(int capacity) {
+		capacity = Math.max(capacity, 1);
+		wordIndex = new int[capacity];
+		startIndex = new short[capacity];
+		endIndex = new short[capacity];
+		firstChild = new int[capacity];
+		sibling = new int[capacity];
+		size = 0;
+		newNode(NIL, (short)0, (short)0);  // root
+	}
+
+	/**
+	 * Builds a packed trie by inserting all words in the input array, one at a time,
+	 * in sequence FROM FIRST TO LAST, exactly like Trie.buildTrie. Characters are
+	 * compared in place, without substrings. A repeated word is held only once, at
+	 * its first index.
+	 *
+	 * @param allWords Input array of words (lowercase) to be inserted.
+	 * @return Packed trie with all words inserted from the input array
+	 * @throws IllegalArgumentException If a word is empty, or is a prefix of another word
+	 */
+	public static PackedTrie build(String[] allWords) {
+		PackedTrie t = new PackedTrie(2 * allWords.length + 1);
+		for (int i = 0; i < allWords.length; i++) {
+			t.insert(allWords, i);
+		}
+		t.trim();
+		return t;
+	}
+
+	/**
+	 * Packs an existing object trie. Node numbers are in pre-order, so that the
+	 * nodes of a subtree are contiguous.
+	 *
+	 * @param root Root of trie, as built by Trie.buildTrie
+	 * @return Packed trie with the same structure
+	 */
+	public static PackedTrie pack(TrieNode root) {
+		PackedTrie t = new PackedTrie(16);
+		t.copyChildren(root, 0);
+		t.trim();
+		return t;
+	}
+
+	private void copyChildren(TrieNode from, int to) {
+		// pre-order: number a node, then its children, then its next sibling
+		int prev = NIL;
+		for (TrieNode ptr = from.firstChild; ptr != null; ptr = ptr.sibling) {
+			int node = newNode(ptr.substr.wordIndex, ptr.substr.startIndex, ptr.substr.endIndex);
+			if (prev == NIL) {
+				firstChild[to] = node;
+			} else {
+				sibling[prev] = node;
+			}
+			copyChildren(ptr, node);
+			prev = node;
+		}
+	}
+
+	private void insert(String[] allWords, int i) {
+		String word = allWords[i];
+		if (word.length() == 0) {
+			throw new IllegalArgumentException("empty word");
+		}
+		int parent = 0;
+		int ptr = firstChild[0];
+		short level = 0;  // start index of all nodes at this level
+		int prev = NIL;
+		while (ptr != NIL) {
+			String ptrWord = allWords[wordIndex[ptr]];
+			int end = endIndex[ptr];
+			int k = startIndex[ptr];
+			while (k <= end && k < word.length() && word.charAt(k) == ptrWord.charAt(k)) {
+				k++;
+			}
+			if (k == startIndex[ptr]) {  // no match, try the next sibling
+				prev = ptr;
+				ptr = sibling[ptr];
+			} else if (k > end && k == word.length() && firstChild[ptr] == NIL) {  // same word
+				return;
+			} else if (k == word.length() || (k > end && firstChild[ptr] == NIL)) {
+				// the word ends inside or at the end of this node, or the node's word ends
+				throw new IllegalArgumentException("\"" + word + "\" and \"" + ptrWord
+						+ "\": no word in a trie may be a prefix of another");
+			} else if (k > end) {  // whole node matched, go down (the word goes on)
+				parent = ptr;
+				level = (short)(end + 1);
+				prev = NIL;
+				ptr = firstChild[ptr];
+			} else {  // partial match, split the node
+				int rest = newNode(wordIndex[ptr], (short)k, (short)end);
+				firstChild[rest] = firstChild[ptr];
+				sibling[rest] = newNode(i, (short)k, (short)(word.length() - 1));
+				endIndex[ptr] = (short)(k - 1);
+				firstChild[ptr] = rest;
+				return;
+			}
+		}
+		int leaf = newNode(i, level, (short)(word.length() - 1));
+		if (prev == NIL) {
+			firstChild[parent] = leaf;
+		} else {
+			sibling[prev] = leaf;
+		}
+	}
+
+	private int newNode(int word, short start, short end) {
+		if (size == wordIndex.length) {
+			int capacity = size * 2;
+			wordIndex = Arrays.copyOf(wordIndex, capacity);
+			startIndex = Arrays.copyOf(startIndex, capacity);
+			endIndex = Arrays.copyOf(endIndex, capacity);
+			firstChild = Arrays.copyOf(firstChild, capacity);
+			sibling = Arrays.copyOf(sibling, capacity);
+		}
+		wordIndex[size] = word;
+		startIndex[size] = start;
+		endIndex[size] = end;
+		firstChild[size] = NIL;
+		sibling[size] = NIL;
+		return size++;
+	}
+
+	private void trim() {
+		wordIndex = Arrays.copyOf(wordIndex, size);
+		startIndex = Arrays.copyOf(startIndex, size);
+		endIndex = Arrays.copyOf(endIndex, size);
+		firstChild = Arrays.copyOf(firstChild, size);
+		sibling = Arrays.copyOf(sibling, size);
+	}
+
+	/**
+	 * Returns the number of nodes, including the root.
+	 *
+	 * @return Number of nodes
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the number of bytes taken by the node arrays (including array headers).
+	 *
+	 * @return Memory used by this trie, not counting the words
+	 */
+	public long bytes() {
+		return 5 * 16L + (long)wordIndex.length * (4 + 2 + 2 + 4 + 4);
+	}
+
+	/**
+	 * Estimates the number of bytes taken by an object trie: a TrieNode (12 byte
+	 * header, 4 references and an int) and an Indexes (12 byte header, an int and
+	 * 2 shorts) per node, each rounded up to 8 bytes, with compressed references,
+	 * plus the child indexes of nodes with many children.
+	 *
+	 * @param root Root of trie, as built by Trie.buildTrie
+	 * @return Estimated memory used by the trie, not counting the words
+	 */
+	public static long objectBytes(TrieNode root) {
+		long nodes = 0;
+		long indexBytes = 0;
+		TrieNode[] stack = new TrieNode[16];
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			TrieNode node = stack[--top];
+			nodes++;
+			if (node.children != null) {
+				indexBytes += node.children.bytes();
+			}
+			for (TrieNode ptr = node.firstChild; ptr != null; ptr = ptr.sibling) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = ptr;
+			}
+		}
+		return nodes * 32 + (nodes - 1) * 24 + indexBytes;  // the root has no Indexes
+	}
+
+	/**
+	 * Returns the completion list for a prefix, like Trie.completionList, as the
+	 * indexes of the matching words. Characters are compared in place.
+	 *
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Indexes in allWords of all words that start with the prefix, in trie
+	 *         order, or null if there are none
+	 */
+	public int[] completionList(String[] allWords, String prefix) {
+		int node = find(allWords, prefix);
+		if (node == NIL) {
+			return null;
+		}
+		int[] matches = new int[16];
+		int count = 0;
+		int[] stack = new int[16];
+		int top = 0;
+		stack[top++] = node;
+		while (top > 0) {
+			int n = stack[--top];
+			if (firstChild[n] == NIL) {
+				if (count == matches.length) {
+					matches = Arrays.copyOf(matches, count * 2);
+				}
+				matches[count++] = wordIndex[n];
+				continue;
+			}
+			// push children in reverse, so that they come off in sibling order
+			int first = top;
+			for (int c = firstChild[n]; c != NIL; c = sibling[c]) {
+				if (top == stack.length) {
+					stack = Arrays.copyOf(stack, top * 2);
+				}
+				stack[top++] = c;
+			}
+			for (int a = first, b = top - 1; a < b; a++, b--) {
+				int t = stack[a];
+				stack[a] = stack[b];
+				stack[b] = t;
+			}
+		}
+		return Arrays.copyOf(matches, count);
+	}
+
+	/**
+	 * Finds the highest node whose subtree holds exactly the words that start with
+	 * the prefix.
+	 *
+	 * @return Node, or NIL if no word starts with the prefix
+	 */
+	int find(String[] allWords, String prefix) {
+		if (prefix.length() == 0) {
+			return firstChild[0] == NIL ? NIL : 0;
+		}
+		int ptr = firstChild[0];
+		while (ptr != NIL) {
+			String word = allWords[wordIndex[ptr]];
+			int start = startIndex[ptr];
+			if (word.charAt(start) != prefix.charAt(start)) {
+				ptr = sibling[ptr];
+				continue;
+			}
+			int end = endIndex[ptr];
+			for (int k = start + 1; k <= end && k < prefix.length(); k++) {
+				if (word.charAt(k) != prefix.charAt(k)) {
+					return NIL;  // siblings differ in the first character, so none can match
+				}
+			}
+			if (end + 1 >= prefix.length()) {
+				return ptr;
+			}
+			ptr = firstChild[ptr];
+		}
+		return NIL;
+	}
+
+	/**
+	 * Prints the trie, in the same format as Trie.print.
+	 *
+	 * @param allWords Array of words that have been inserted into the trie
+	 */
+	public void print(String[] allWords) {
+		System.out.println("\nTRIE\n");
+		print(0, 1, allWords);
+	}
+
+	private void print(int node, int indent, String[] words) {
+		for (int i=0; i < indent-1; i++) {
+			System.out.print("    ");
+		}
+
+		if (node != 0) {
+			String pre = words[wordIndex[node]]
+							.substring(0, endIndex[node]+1);
+			System.out.println("      " + pre);
+		}
+
+		for (int i=0; i < indent-1; i++) {
+			System.out.print("    ");
+		}
+		System.out.print(" ---");
+		if (node == 0) {
+			System.out.println("root");
+		} else {
+			System.out.println("(" + wordIndex[node] + "," + startIndex[node] + "," + endIndex[node] + ")");
+		}
+
+		for (int ptr=firstChild[node]; ptr != NIL; ptr=sibling[ptr]) {
+			for (int i=0; i < indent-1; i++) {
+				System.out.print("    ");
+			}
+			System.out.println("     |");
+			print(ptr, indent+1, words);
+		}
+	}
+}
@@ -1,6 +1,14 @@
 package trie;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * This class implements a Trie. 
@@ -10,6 +18,11 @@ import java.util.ArrayList;
  */
 public class Trie {
 	
+	/**
+	 * Tries with fewer words than this are not built in parallel
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 12;
+	
 	// prevent instantiation
 	private Trie() { }
 	
@@ -20,82 +33,410 @@ public class Trie {
 	 * 
 	 * @param allWords Input array of words (lowercase) to be inserted.
 	 * @return Root of trie with all words inserted from the input array
+	 * @throws IllegalArgumentException If a word is empty, or is a prefix of another word
 	 */
 	public static TrieNode buildTrie(String[] allWords) {
 		
+		TrieNode root = new TrieNode(null, null, null);
+		for(int i = 0; i < allWords.length; i++) {
+			insert(root, allWords, i);
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * Builds the same trie as buildTrie, for words that are in lexicographic order, 
+	 * in a single pass. Each word is compared only with the previous word: their 
+	 * longest common prefix says where on the path to the previous word's leaf the new 
+	 * word branches off, and since the words are sorted, the new leaf is always the 
+	 * last child there. The path is kept on a stack, so the time is linear in the total 
+	 * length of the words.
+	 * 
+	 * @param allWords Input array of words (lowercase), in lexicographic order. Like 
+	 * 			buildTrie, a repeated word is held only once, at its first index.
+	 * @return Root of trie with all words inserted from the input array
+	 * @throws IllegalArgumentException If the words are not sorted, or a word is empty 
+	 * 			or a prefix of another word
+	 */
+	public static TrieNode buildSortedTrie(String[] allWords) {
+		
 		TrieNode root = new TrieNode(null, null, null);
 		if(allWords.length == 0) {
 			return root;
 		}
+		if(allWords[0].length() == 0) {
+			throw new IllegalArgumentException("empty word");
+		}
 		
-		root.firstChild = new TrieNode(new Indexes(0, (short)0, (short)(allWords[0].length()- 1)), null, null);
-		TrieNode ptr = root.firstChild;
-		TrieNode prev = root.firstChild;
-		int endOfPrefix = 0;
+		// path from the top level to the leaf of the previous word
+		TrieNode[] path = new TrieNode[16];
+		int depth = 0;
+		root.firstChild = new TrieNode(new Indexes(0, (short)0, (short)(allWords[0].length() - 1)), null, null);
+		path[depth++] = root.firstChild;
 		
 		for(int i = 1; i < allWords.length; i++) {
 			String word = allWords[i];
-
-			while(ptr != null) {
-				int ptrStringIndex = ptr.substr.wordIndex;
-				int startingIndex = ptr.substr.startIndex;
-				int endingIndex = ptr.substr.endIndex;
-				String ptrString = allWords[ptrStringIndex].substring(startingIndex, endingIndex + 1);
-				
-				if(startingIndex > word.length()) {
-					prev = ptr;
-					ptr = ptr.sibling;
-					continue;
+			String prevWord = allWords[i-1];
+			int lcp = 0;
+			while(lcp < word.length() && lcp < prevWord.length() && word.charAt(lcp) == prevWord.charAt(lcp)) {
+				lcp++;
+			}
+			if(lcp == word.length() && lcp == prevWord.length()) { //Same word, already in the trie
+				continue;
+			}
+			if(lcp == word.length() || lcp == prevWord.length()) {
+				throw new IllegalArgumentException("\"" + prevWord + "\" and \"" + word
+						+ "\": no word in a trie may be a prefix of another");
+			}
+			if(word.charAt(lcp) < prevWord.charAt(lcp)) {
+				throw new IllegalArgumentException("words are not sorted: \"" + prevWord 
+						+ "\" comes before \"" + word + "\"");
+			}
+			
+			// nodes entirely past the common prefix are done
+			while(depth > 0 && path[depth-1].substr.startIndex >= lcp) {
+				depth--;
+			}
+			TrieNode leaf = new TrieNode(new Indexes(i, (short)lcp, (short)(word.length() - 1)), null, null);
+			if(depth == 0) { //No common prefix, new last node at the top level
+				addChild(root, allWords, leaf);
+			}
+			else {
+				TrieNode ptr = path[depth-1];
+				if(ptr.substr.endIndex >= lcp) { //Only part of it matched, so split the node
+					split(ptr, lcp, leaf);
 				}
-				
-				endOfPrefix = 0;
-				while(endOfPrefix < word.substring(startingIndex).length()
-						&& endOfPrefix < ptrString.length()
-						&& word.substring(startingIndex).charAt(endOfPrefix) == ptrString.charAt(endOfPrefix))
-					endOfPrefix++;
-				
-				if(endOfPrefix != 0) {
-					endOfPrefix += startingIndex;
+				else { //The new leaf is the last child, after the one on the path
+					addChild(ptr, allWords, leaf);
 				}
-				
-				if(endOfPrefix == 0) { //There was no matching prefix
-					prev = ptr;
-					ptr = ptr.sibling;
+			}
+			if(depth + 1 == path.length) {
+				TrieNode[] bigger = new TrieNode[path.length * 2];
+				System.arraycopy(path, 0, bigger, 0, depth);
+				path = bigger;
+			}
+			path[depth++] = leaf;
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * Builds the same trie as buildTrie, in parallel. Words are partitioned by their 
+	 * first character, since words with different first characters only meet at the 
+	 * top level. The subtree for each first character is built by inserting its words 
+	 * in input order, and the subtrees are then linked in the order in which their 
+	 * first characters appear in the input.
+	 * 
+	 * @param allWords Input array of words (lowercase) to be inserted.
+	 * @return Root of trie with all words inserted from the input array
+	 * @throws IllegalArgumentException If a word is empty, or is a prefix of another word
+	 */
+	public static TrieNode buildTrieParallel(String[] allWords) {
+		
+		if(allWords.length < PARALLEL_THRESHOLD) {
+			return buildTrie(allWords);
+		}
+		
+		// group number of each word, with groups numbered in order of first appearance
+		HashMap<Character, Integer> groupOf = new HashMap<Character, Integer>();
+		int[] group = new int[allWords.length];
+		int[] sizes = new int[16];
+		for(int i = 0; i < allWords.length; i++) {
+			if(allWords[i].length() == 0) {
+				throw new IllegalArgumentException("empty word");
+			}
+			Integer g = groupOf.get(allWords[i].charAt(0));
+			if(g == null) {
+				g = groupOf.size();
+				groupOf.put(allWords[i].charAt(0), g);
+				if(g == sizes.length) {
+					sizes = Arrays.copyOf(sizes, g * 2);
 				}
-				else {
-					if(endOfPrefix - 1 == endingIndex) { //The entire prefix matched, so now move down to the child of that node
-						prev = ptr;
-						ptr = ptr.firstChild;
-					}
-					else { //Only part of it matched, so now it needs to do the work
-						prev = ptr;
-						break;
-					}
+			}
+			group[i] = g;
+			sizes[g]++;
+		}
+		int[][] members = new int[groupOf.size()][];
+		for(int g = 0; g < members.length; g++) {
+			members[g] = new int[sizes[g]];
+			sizes[g] = 0;
+		}
+		for(int i = 0; i < allWords.length; i++) {
+			members[group[i]][sizes[group[i]]++] = i;
+		}
+		
+		ArrayList<Callable<TrieNode>> tasks = new ArrayList<Callable<TrieNode>>();
+		for(int g = 0; g < members.length; g++) {
+			final int[] words = members[g];
+			tasks.add(() -> {
+				TrieNode subRoot = new TrieNode(null, null, null);
+				for(int i : words) {
+					insert(subRoot, allWords, i);
 				}
-				
+				return subRoot.firstChild;  // the only node at the top level
+			});
+		}
+		
+		TrieNode root = new TrieNode(null, null, null);
+		for(Future<TrieNode> f : ForkJoinPool.commonPool().invokeAll(tasks)) {
+			TrieNode top;
+			try {
+				top = f.get();
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException) {
+					throw (RuntimeException)e.getCause();
+				}
+				throw new IllegalStateException(e.getCause());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted while building trie");
 			}
-			
-			if(ptr == null) { //No prefix found, add the new word to the end of the row
-				prev.sibling = new TrieNode(new Indexes(i, (short) 0, (short) (word.length() -1)), null, null);
+			addChild(root, allWords, top);
+		}
+		
+		return root;
+	}
+	
+	/**
+	 * Inserts a word into a trie, adding it to the word store. If the word is already
+	 * in the trie, nothing is changed. The new word has no weight for topKCompletions
+	 * until assignWeights (or setWeight) is called.
+	 * 
+	 * @param root Root of trie
+	 * @param words Store of the words in the trie
+	 * @param word Word (lowercase) to be inserted
+	 * @return Leaf node that holds the word
+	 * @throws IllegalArgumentException If the word is empty, or is a prefix of a word 
+	 * 			in the trie, or a word in the trie is a prefix of it
+	 */
+	public static TrieNode insert(TrieNode root, WordStore words, String word) {
+		int i = words.add(word);
+		TrieNode leaf;
+		try {
+			leaf = insert(root, words.array(), i);
+		} catch (IllegalArgumentException e) {
+			words.remove(i);
+			throw e;
+		}
+		if (leaf.substr.wordIndex != i) {  // already in the trie
+			words.remove(i);
+		}
+		return leaf;
+	}
+	
+	/**
+	 * Inserts the word at index i of allWords. At each level, the child to go down to
+	 * is looked up by the next character of the word, characters are compared in place,
+	 * and at most one node is split, so the cost is proportional to the length of the 
+	 * word.
+	 * 
+	 * @return Leaf node that holds the word, which is an existing leaf if the same 
+	 * 			word is already in the trie
+	 */
+	static TrieNode insert(TrieNode root, String[] allWords, int i) {
+		String word = allWords[i];
+		if (word.length() == 0) {
+			throw new IllegalArgumentException("empty word");
+		}
+		TrieNode parent = root;
+		int level = 0;  // start index of all nodes at this level
+		while (true) {
+			TrieNode ptr = child(parent, allWords, word.charAt(level));
+			if (ptr == null) { //No prefix found, add the new word to the end of the row
+				TrieNode leaf = new TrieNode(new Indexes(i, (short) level, (short) (word.length() - 1)), null, null);
+				addChild(parent, allWords, leaf);
+				return leaf;
 			}
-			
-			else {
-				TrieNode oldParentChild = ptr.firstChild;
-				short oldEndIndex = ptr.substr.endIndex;
-				
-				ptr.substr.endIndex = (short) (endOfPrefix - 1);
-				ptr.firstChild = new TrieNode(new Indexes(ptr.substr.wordIndex, (short) (endOfPrefix), oldEndIndex),
-						oldParentChild,
-						new TrieNode(new Indexes((short) i, (short) (endOfPrefix), (short) (word.length() - 1)), null, null));
-				
+			String ptrWord = allWords[ptr.substr.wordIndex];
+			int end = ptr.substr.endIndex;
+			int k = level + 1;
+			while (k <= end && k < word.length() && word.charAt(k) == ptrWord.charAt(k)) {
+				k++;
+			}
+			if (k > end && k == word.length() && ptr.firstChild == null) { //Same word
+				return ptr;
+			} else if (k == word.length() || (k > end && ptr.firstChild == null)) {
+				throw new IllegalArgumentException("\"" + word + "\" and \"" + ptrWord
+						+ "\": no word in a trie may be a prefix of another");
+			} else if (k > end) { //The entire prefix matched, so move down
+				parent = ptr;
+				level = end + 1;
+			} else { //Only part of it matched, so split the node
+				TrieNode leaf = new TrieNode(new Indexes(i, (short) k, (short) (word.length() - 1)), null, null);
+				split(ptr, k, leaf);
+				return leaf;
 			}
-			
-			ptr = root.firstChild;
-			prev = ptr;
-			endOfPrefix = 0;
 		}
+	}
+	
+	/**
+	 * Splits a node after its first k characters (counting from the start of the
+	 * word): the rest of the node, with all its children, becomes its first child,
+	 * and the new leaf its second child.
+	 */
+	private static void split(TrieNode ptr, int k, TrieNode leaf) {
+		TrieNode rest = new TrieNode(new Indexes(ptr.substr.wordIndex, (short) k, ptr.substr.endIndex),
+				ptr.firstChild, leaf);
+		rest.maxWeight = ptr.maxWeight;
+		rest.children = ptr.children;
+		ptr.children = null;
+		ptr.firstChild = rest;
+		ptr.substr.endIndex = (short) (k - 1);
+	}
+	
+	/**
+	 * Deletes a word from a trie, and removes it from the word store. If that leaves 
+	 * a node with a single child, the child is merged into it, so the trie stays 
+	 * exactly as compressed as if the word had never been inserted. Nodes above the
+	 * leaf that refer to the deleted word in their Indexes are pointed to another word
+	 * in their subtree. Their maximum weights are left as they are, so assignWeights 
+	 * should be called again before relying on topKCompletions visiting few nodes.
+	 * 
+	 * @param root Root of trie
+	 * @param words Store of the words in the trie
+	 * @param word Word to be deleted
+	 * @return True if the word was deleted, false if it was not in the trie
+	 */
+	public static boolean delete(TrieNode root, WordStore words, String word) {
+		String[] allWords = words.array();
+		TrieNode[] path = new TrieNode[word.length() + 1];
+		int depth = path(root, allWords, word, path);
+		if (depth < 0) {
+			return false;
+		}
+		TrieNode leaf = path[depth-1];
+		TrieNode parent = path[depth-2];
 		
-		return root;
+		removeChild(parent, allWords, leaf);
+		if (parent != root && parent.firstChild.sibling == null) {
+			TrieNode child = parent.firstChild;
+			parent.substr = new Indexes(child.substr.wordIndex, parent.substr.startIndex, child.substr.endIndex);
+			parent.firstChild = child.firstChild;
+			parent.children = child.children;
+		}
+		
+		// every node's word is in its subtree, so a child's word can stand in, bottom up
+		int w = leaf.substr.wordIndex;
+		for (int d = depth - 2; d > 0; d--) {
+			if (path[d].substr.wordIndex == w) {
+				path[d].substr.wordIndex = path[d].firstChild.substr.wordIndex;
+			}
+		}
+		words.remove(w);
+		return true;
+	}
+	
+	/**
+	 * Fills in the path from the root to the leaf that holds a word.
+	 * 
+	 * @param path Array for the path, at least one longer than the word
+	 * @return Number of nodes in the path (root and leaf included), or -1 if the word
+	 * 			is not in the trie
+	 */
+	private static int path(TrieNode root, String[] allWords, String word, TrieNode[] path) {
+		int depth = 0;
+		path[depth++] = root;
+		int level = 0;
+		TrieNode ptr = root;
+		while (level < word.length()) {
+			ptr = child(ptr, allWords, word.charAt(level));
+			if (ptr == null) {
+				return -1;
+			}
+			int end = ptr.substr.endIndex;
+			if (!allWords[ptr.substr.wordIndex].regionMatches(level, word, level, end - level + 1)) {
+				return -1;
+			}
+			path[depth++] = ptr;
+			if (ptr.firstChild == null) {
+				return end + 1 == word.length() ? depth : -1;
+			}
+			level = end + 1;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Returns the child of a node whose substring starts with a character. The node's
+	 * child index is used if it has one, otherwise its (few) children are walked.
+	 * 
+	 * @return Child, or null if there is none
+	 */
+	static TrieNode child(TrieNode node, String[] allWords, char c) {
+		if (node.children != null) {
+			return node.children.get(c);
+		}
+		for (TrieNode ptr = node.firstChild; ptr != null; ptr = ptr.sibling) {
+			if (firstChar(ptr, allWords) == c) {
+				return ptr;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Appends a child at the end of a node's children, and indexes it. A node gets a
+	 * child index when it reaches ChildIndex.MIN_CHILDREN children.
+	 */
+	static void addChild(TrieNode node, String[] allWords, TrieNode child) {
+		ChildIndex index = node.children;
+		if (index != null) {
+			index.last.sibling = child;
+			index.last = child;
+			index.put(firstChar(child, allWords), child);
+			return;
+		}
+		if (node.firstChild == null) {
+			node.firstChild = child;
+			return;
+		}
+		int count = 2;
+		TrieNode ptr = node.firstChild;
+		while (ptr.sibling != null) {
+			ptr = ptr.sibling;
+			count++;
+		}
+		ptr.sibling = child;
+		if (count >= ChildIndex.MIN_CHILDREN) {
+			index = new ChildIndex();
+			for (ptr = node.firstChild; ptr != null; ptr = ptr.sibling) {
+				index.put(firstChar(ptr, allWords), ptr);
+			}
+			index.last = child;
+			node.children = index;
+		}
+	}
+	
+	/**
+	 * Unlinks a child from a node's children. The node loses its child index when it 
+	 * is down to ChildIndex.DROP_CHILDREN children.
+	 */
+	static void removeChild(TrieNode node, String[] allWords, TrieNode child) {
+		TrieNode prev = null;
+		for (TrieNode ptr = node.firstChild; ptr != child; ptr = ptr.sibling) {
+			prev = ptr;
+		}
+		if (prev == null) {
+			node.firstChild = child.sibling;
+		} else {
+			prev.sibling = child.sibling;
+		}
+		ChildIndex index = node.children;
+		if (index != null) {
+			index.remove(firstChar(child, allWords));
+			if (index.last == child) {
+				index.last = prev;
+			}
+			if (index.count <= ChildIndex.DROP_CHILDREN) {
+				node.children = null;
+			}
+		}
+	}
+	
+	private static char firstChar(TrieNode node, String[] allWords) {
+		return allWords[node.substr.wordIndex].charAt(node.substr.startIndex);
 	}
 	
 	/**
@@ -119,42 +460,285 @@ public class Trie {
 	public static ArrayList<TrieNode> completionList(TrieNode root,
 										String[] allWords, String prefix) {
 		
-		if(root == null) {
-			return null;
-		}
-		
 		ArrayList<TrieNode> list = new ArrayList<>();
-		TrieNode ptr = root;
+		for (Iterator<TrieNode> it = completions(root, allWords, prefix); it.hasNext(); ) {
+			list.add(it.next());
+		}
 		
+		if(list.isEmpty())
+			return null;
 		
-		while(ptr != null){ // Traversing the trie
-			System.out.println(0);
-			if(ptr.substr == null)	//Makes sure to start the process at a legit node, not the root
-				ptr = ptr.firstChild;		
-			
-			String ptrStr = allWords[ptr.substr.wordIndex].substring(0, ptr.substr.endIndex + 1);
-			if(allWords[ptr.substr.wordIndex].startsWith(prefix) || (prefix.startsWith(ptrStr) )) {
-				if(ptr.firstChild == null && allWords[ptr.substr.wordIndex].length() >= prefix.length()) {
-					list.add(ptr);
-					ptr = ptr.sibling;
+		return list;
+	}
+	
+	/**
+	 * Returns the completions for a prefix, i.e. the same leaf nodes as completionList, 
+	 * lazily, in trie order. The trie is descended with characters compared in place 
+	 * against the Indexes ranges of nodes, and leaves are found only as they are asked for.
+	 * 
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @return Iterator over all leaf nodes that hold words that start with the prefix 
+	 * 			(no elements if there are none)
+	 */
+	public static Iterator<TrieNode> completions(TrieNode root, String[] allWords, String prefix) {
+		return completions(root, allWords, prefix, Integer.MAX_VALUE);
+	}
+	
+	/**
+	 * Returns at most limit completions for a prefix, lazily, in trie order. 
+	 * Nodes beyond the last returned completion are never visited.
+	 * 
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param limit Maximum number of completions
+	 * @return Iterator over the first (at most) limit leaf nodes that hold words that 
+	 * 			start with the prefix
+	 */
+	public static Iterator<TrieNode> completions(TrieNode root, String[] allWords, String prefix, int limit) {
+		return new CompletionIterator(find(root, allWords, prefix), limit);
+	}
+	
+	/**
+	 * Returns a page of completions for a prefix, in lexicographic order of their words,
+	 * with a token for the next page. Getting a page costs a descent of the trie to the
+	 * last word of the previous page, plus the nodes on this page; earlier completions 
+	 * are not walked over again. Between pages, words may be inserted into or deleted 
+	 * from the trie; the next page starts with the first word after the previous page.
+	 * 
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param pageSize Maximum number of completions on the page
+	 * @param token Token from the previous page for the same prefix, or null for the first page
+	 * @return Page of completions (empty if there are none)
+	 * @throws IllegalArgumentException If pageSize is not positive, or the token is not 
+	 * 			one given for this prefix
+	 */
+	public static CompletionPage completionPage(TrieNode root, String[] allWords, String prefix, 
+			int pageSize, String token) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("page size must be positive: " + pageSize);
+		}
+		String after = null;
+		if (token != null) {
+			after = CompletionPage.decode(token);
+			if (!after.startsWith(prefix)) {
+				throw new IllegalArgumentException("token is not for prefix \"" + prefix + "\"");
+			}
+		}
+		return new CompletionPage(find(root, allWords, prefix), allWords, prefix.length(), after, pageSize);
+	}
+	
+	/**
+	 * Finds the highest node whose subtree holds exactly the words that start with 
+	 * the prefix. All nodes at a level start at the same index, and siblings differ 
+	 * in their first character, so at most one sibling at each level can match.
+	 * 
+	 * @return Node, or null if no word starts with the prefix
+	 */
+	static TrieNode find(TrieNode root, String[] allWords, String prefix) {
+		if (root == null || root.firstChild == null) {
+			return null;
+		}
+		TrieNode ptr = root;
+		int level = 0;
+		while (level < prefix.length()) {
+			ptr = child(ptr, allWords, prefix.charAt(level));
+			if (ptr == null) {
+				return null;
+			}
+			String word = allWords[ptr.substr.wordIndex];
+			int end = ptr.substr.endIndex;
+			for (int k = level + 1; k <= end && k < prefix.length(); k++) {
+				if (word.charAt(k) != prefix.charAt(k)) {
+					return null;
 				}
-				else {
-					ArrayList<TrieNode> listadd = completionList(ptr.firstChild, allWords, prefix);
-					if(listadd != null) {
-						list.addAll(completionList(ptr.firstChild, allWords, prefix));
-					}
-					ptr = ptr.sibling;
+			}
+			level = end + 1;
+		}
+		return ptr;
+	}
+	
+	/**
+	 * Returns the fuzzy completion list for a prefix: all the leaf nodes whose words 
+	 * have a prefix within an edit distance (Levenshtein: insertions, deletions and 
+	 * substitutions of single characters) of the given prefix. This catches typos in 
+	 * a prefix. For instance, with distance 1, prefix "bwl" is completed with "bell" 
+	 * and "bull". 
+	 * 
+	 * The trie is walked once, computing one row of the edit distance table per 
+	 * character on the path from the root; children share their parent's rows. A 
+	 * subtree is skipped as soon as every entry of the row exceeds the distance, and 
+	 * taken whole as soon as the entire prefix is within the distance.
+	 * 
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param maxDistance Maximum edit distance
+	 * @return List of all leaf nodes in trie that hold matching words, in trie order.
+	 *         If there is no matching word, null is returned.
+	 */
+	public static ArrayList<TrieNode> fuzzyCompletionList(TrieNode root, String[] allWords, 
+										String prefix, int maxDistance) {
+		ArrayList<TrieNode> list = new ArrayList<>();
+		if (root.firstChild == null) {
+			return null;
+		}
+		if (prefix.length() <= maxDistance) {  // every word is within reach
+			return completionList(root, allWords, "");
+		}
+		int[][] rows = new int[16][];
+		rows[0] = new int[prefix.length() + 1];
+		for (int j = 0; j < rows[0].length; j++) {
+			rows[0][j] = j;
+		}
+		fuzzyCompletions(root, allWords, prefix, maxDistance, rows, list);
+		return list.isEmpty() ? null : list;
+	}
+	
+	/**
+	 * Adds the matching leaves under a node to the list. Row k of the table holds the
+	 * edit distances between the first k characters of the path and each prefix of 
+	 * the query; rows up to the node's end are filled in. 
+	 * 
+	 * @return The rows, which may have been grown
+	 */
+	private static int[][] fuzzyCompletions(TrieNode node, String[] allWords, String prefix, 
+										int maxDistance, int[][] rows, ArrayList<TrieNode> list) {
+		int m = prefix.length();
+		for (TrieNode ptr = node.firstChild; ptr != null; ptr = ptr.sibling) {
+			String word = allWords[ptr.substr.wordIndex];
+			boolean matched = false;
+			boolean pruned = false;
+			for (int k = ptr.substr.startIndex; k <= ptr.substr.endIndex; k++) {
+				if (k + 1 == rows.length) {
+					rows = Arrays.copyOf(rows, rows.length * 2);
+				}
+				if (rows[k+1] == null) {
+					rows[k+1] = new int[m + 1];
+				}
+				int[] above = rows[k];
+				int[] row = rows[k+1];
+				char c = word.charAt(k);
+				row[0] = k + 1;
+				int min = row[0];
+				for (int j = 1; j <= m; j++) {
+					int cost = prefix.charAt(j-1) == c ? 0 : 1;
+					row[j] = Math.min(Math.min(above[j] + 1, row[j-1] + 1), above[j-1] + cost);
+					min = Math.min(min, row[j]);
+				}
+				if (row[m] <= maxDistance) {
+					matched = true;
+					break;
+				}
+				if (min > maxDistance) {
+					pruned = true;
+					break;
 				}
 			}
-			
-			else{
-				ptr = ptr.sibling;
+			if (matched) {
+				for (Iterator<TrieNode> it = new CompletionIterator(ptr, Integer.MAX_VALUE); it.hasNext(); ) {
+					list.add(it.next());
+				}
+			} else if (!pruned && ptr.firstChild != null) {
+				rows = fuzzyCompletions(ptr, allWords, prefix, maxDistance, rows, list);
 			}
 		}
-		
-		if(list.isEmpty())
+		return rows;
+	}
+	
+	/**
+	 * Sets the weights of all words in a trie, and computes the maximum weight in 
+	 * every subtree, for topKCompletions. Words inserted afterwards have weight 
+	 * Integer.MIN_VALUE, and deleted words leave their weight behind as an upper bound 
+	 * in the nodes above them, so weights should be assigned again after insert or 
+	 * delete (or a new word's weight set with setWeight).
+	 * 
+	 * @param root Root of trie
+	 * @param weights Weight of each word, by word index (as in allWords)
+	 */
+	public static void assignWeights(TrieNode root, int[] weights) {
+		if (root.firstChild != null) {
+			computeMaxWeight(root, weights);
+		}
+	}
+	
+	private static int computeMaxWeight(TrieNode node, int[] weights) {
+		if (node.firstChild == null) {
+			node.maxWeight = weights[node.substr.wordIndex];
+			return node.maxWeight;
+		}
+		int max = Integer.MIN_VALUE;
+		for (TrieNode ptr = node.firstChild; ptr != null; ptr = ptr.sibling) {
+			max = Math.max(max, computeMaxWeight(ptr, weights));
+		}
+		node.maxWeight = max;
+		return max;
+	}
+	
+	/**
+	 * Sets the weight of one word, raising the maximum weights of the nodes above it 
+	 * as needed. If the weight is lowered, the nodes above keep their maximums, which
+	 * are then upper bounds: topKCompletions is still correct, but may visit more nodes
+	 * until assignWeights is called again.
+	 * 
+	 * @param root Root of trie
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param word Word whose weight is set
+	 * @param weight New weight
+	 * @return True if the word is in the trie, false otherwise
+	 */
+	public static boolean setWeight(TrieNode root, String[] allWords, String word, int weight) {
+		TrieNode[] path = new TrieNode[word.length() + 1];
+		int depth = path(root, allWords, word, path);
+		if (depth < 0) {
+			return false;
+		}
+		path[depth-1].maxWeight = weight;
+		for (int d = 0; d < depth - 1; d++) {
+			path[d].maxWeight = Math.max(path[d].maxWeight, weight);
+		}
+		return true;
+	}
+	
+	/**
+	 * Returns the k heaviest completions for a prefix, heaviest first. The search is 
+	 * best first: subtrees are expanded in order of their maximum weight, so a leaf 
+	 * comes off the queue only when no unexpanded subtree can hold a heavier word, and 
+	 * the search stops as soon as k leaves have come off. Weights must have been set 
+	 * with assignWeights (or setWeight), and assigned again after insert or delete:
+	 * until then, inserted words come last, whatever their weight.
+	 * 
+	 * @param root Root of Trie that stores all words to search on for completion lists
+	 * @param allWords Array of words that have been inserted into the trie
+	 * @param prefix Prefix to be completed with words in trie
+	 * @param k Maximum number of completions
+	 * @return At most k leaf nodes that hold words that start with the prefix, in 
+	 * 			decreasing order of weight. If there is no word in the tree that has 
+	 * 			this prefix, null is returned.
+	 */
+	public static ArrayList<TrieNode> topKCompletions(TrieNode root, String[] allWords, String prefix, int k) {
+		TrieNode start = find(root, allWords, prefix);
+		if (start == null) {
 			return null;
-		
+		}
+		ArrayList<TrieNode> list = new ArrayList<>();
+		PriorityQueue<TrieNode> queue = new PriorityQueue<TrieNode>(
+				(a, b) -> Integer.compare(b.maxWeight, a.maxWeight));
+		queue.add(start);
+		while (list.size() < k && !queue.isEmpty()) {
+			TrieNode node = queue.poll();
+			if (node.firstChild == null) {
+				list.add(node);
+				continue;
+			}
+			for (TrieNode ptr = node.firstChild; ptr != null; ptr = ptr.sibling) {
+				queue.add(ptr);
+			}
+		}
 		return list;
 	}
 	
@@ -9,10 +9,43 @@ public class TrieApp {
 
 	static Scanner stdin = new Scanner(System.in);
 	
+	/**
+	 * Runs interactively, with a words file or a trie image file (name ending in 
+	 * ".trie"). With arguments -write wordsFile imageFile, builds the trie for a 
+	 * words file and writes its image, to be used in place of the words file.
+	 */
 	public static void main(String[] args) 
 	throws IOException {
+		if (args.length == 3 && args[0].equals("-write")) {
+			String[] allWords = readWords(args[1]);
+			MappedTrie.write(args[2], Trie.buildTrie(allWords), allWords);
+			System.out.println(allWords.length + " words written to " + args[2]);
+			return;
+		}
+		
 		System.out.print("Enter words file name => ");
 		String wordsFile = stdin.nextLine();
+		if (wordsFile.endsWith(".trie")) {
+			// answer straight from the mapped image, nothing to build
+			completionLists(MappedTrie.load(wordsFile));
+			return;
+		}
+		String[] allWords = readWords(wordsFile);
+		
+		// build Trie
+		TrieNode root = Trie.buildTrie(allWords);
+		// print it for verification
+		Trie.print(root, allWords);
+		// do completion lists
+		completionLists(root, allWords);
+	}
+	
+	/**
+	 * Reads a words file: words appear one per line, and the first line has the 
+	 * number of words.
+	 */
+	static String[] readWords(String wordsFile) 
+	throws IOException {
 		Scanner sc = new Scanner(new File(wordsFile));
 		// words appear one per line in input file
 		// first line has number of words
@@ -22,13 +55,7 @@ public class TrieApp {
 			allWords[i] = sc.nextLine().trim().toLowerCase();
 		}
 		sc.close();
-		
-		// build Trie
-		TrieNode root = Trie.buildTrie(allWords);
-		// print it for verification
-		Trie.print(root, allWords);
-		// do completion lists
-		completionLists(root, allWords);
+		return allWords;
 	}
 	
 	private static void completionLists(TrieNode root, String[] allWords) {
@@ -42,6 +69,25 @@ public class TrieApp {
 		}
 	}
 	
+	private static void completionLists(MappedTrie trie) {
+		System.out.print("\ncompletion list for (enter prefix, or 'quit'): ");
+		String prefix = stdin.nextLine().trim().toLowerCase();
+		while (!"quit".equals(prefix)) {
+			int[] matches = trie.completionList(prefix);
+			if (matches == null) {
+				System.out.println("No match");
+			} else {
+				System.out.print(trie.word(matches[0]));
+				for (int i=1; i < matches.length; i++) {
+					System.out.print(","+trie.word(matches[i]));
+				}
+				System.out.println();
+			}
+			System.out.print("\ncompletion list for: ");
+			prefix = stdin.nextLine().trim().toLowerCase();
+		}
+	}
+	
 	private static void printMatches(ArrayList<TrieNode> matches, String[] allWords) {
 		if (matches == null) {
 			System.out.println("No match");
@@ -0,0 +1,182 @@
+package trie;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+/**
+ * Compares the trie implementations on a words file (in the same format as for
+ * TrieApp), or on a synthetic dictionary of random words, or of random stems with
+ * common suffixes. TrieMap is also compared with HashMap and TreeMap, for memory 
+ * (measured as growth of the used heap) and lookup time.
+ * 
+ * Usage: java trie.TrieBenchmark (words file | -random number of words | -morph number of words)
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class TrieBenchmark {
+
+	public static void main(String[] args) 
+	throws IOException {
+		String[] allWords;
+		if (args.length >= 2 && args[0].equals("-random")) {
+			allWords = randomWords(Integer.parseInt(args[1]), 42);
+		} else if (args.length >= 2 && args[0].equals("-morph")) {
+			allWords = morphWords(Integer.parseInt(args[1]), 42);
+		} else if (args.length >= 1) {
+			allWords = TrieApp.readWords(args[0]);
+		} else {
+			System.out.println("Usage: java trie.TrieBenchmark (words file | -random number of words | -morph number of words)");
+			return;
+		}
+		System.out.println(allWords.length + " words");
+		
+		long t = System.nanoTime();
+		TrieNode root = Trie.buildTrie(allWords);
+		report("object trie build", t);
+		t = System.nanoTime();
+		Trie.buildTrieParallel(allWords);
+		report("parallel build", t);
+		String[] sorted = allWords.clone();
+		Arrays.sort(sorted);
+		t = System.nanoTime();
+		Trie.buildSortedTrie(sorted);
+		report("sorted build", t);
+		t = System.nanoTime();
+		PackedTrie packed = PackedTrie.build(allWords);
+		report("packed trie build", t);
+		System.out.println(packed.size() + " nodes: object trie ~" + PackedTrie.objectBytes(root) + 
+				" bytes, packed trie " + packed.bytes() + " bytes, plus words ~" + wordsBytes(allWords) + " bytes");
+		t = System.nanoTime();
+		Dawg dawg = Dawg.build(sorted);
+		report("DAWG build", t);
+		System.out.println(dawg.stateCount() + " DAWG states, " + dawg.transitionCount() + 
+				" transitions: ~" + dawg.bytes() + " bytes, words included");
+		
+		Integer[] values = new Integer[allWords.length];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = i;
+		}
+		String[] lookups = allWords.clone();
+		Collections.shuffle(Arrays.asList(lookups), new Random(42));
+		compareMap("HashMap", new HashMap<String, Integer>(), allWords, values, lookups);
+		compareMap("TreeMap", new TreeMap<String, Integer>(), allWords, values, lookups);
+		compareMap("TrieMap", new TrieMap<Integer>(), allWords, values, lookups);
+	}
+	
+	/**
+	 * Fills a map with the words, and reports the build time, the heap it takes (keys 
+	 * and values are shared, so not counted) and the mean time of a lookup, over a few
+	 * rounds of looking up every word.
+	 */
+	static void compareMap(String name, Map<String, Integer> map, String[] allWords, 
+			Integer[] values, String[] lookups) {
+		long before = usedMemory();
+		long t = System.nanoTime();
+		for (int i = 0; i < allWords.length; i++) {
+			map.put(allWords[i], values[i]);
+		}
+		report(name + " build", t);
+		long bytes = usedMemory() - before;
+		
+		long found = 0;
+		for (int round = 0; round < 3; round++) {  // warm up
+			for (String word : lookups) {
+				found += map.get(word) != null ? 1 : 0;
+			}
+		}
+		int rounds = 5;
+		t = System.nanoTime();
+		for (int round = 0; round < rounds; round++) {
+			for (String word : lookups) {
+				found += map.get(word) != null ? 1 : 0;
+			}
+		}
+		double ns = (System.nanoTime() - t) / ((double)rounds * Math.max(lookups.length, 1));
+		System.out.printf("%-24s %10.1f ns/get, ~%d bytes (%d found)%n", name, ns, bytes, found);
+	}
+	
+	private static long usedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+	
+	/**
+	 * Estimates the bytes taken by the words: a String (24 bytes) and its array of 
+	 * one byte characters (16 byte header), rounded up to 8 bytes.
+	 */
+	static long wordsBytes(String[] allWords) {
+		long bytes = 0;
+		for (String word : allWords) {
+			bytes += 24 + ((16 + word.length() + 7) & ~7);
+		}
+		return bytes;
+	}
+	
+	static void report(String what, long start) {
+		System.out.printf("%-24s %10.2f ms%n", what, (System.nanoTime() - start) / 1e6);
+	}
+	
+	/**
+	 * Makes distinct random lowercase words, none of which is a prefix of another:
+	 * every word ends with a letter that appears nowhere else ('z').
+	 */
+	static String[] randomWords(int n, long seed) {
+		Random r = new Random(seed);
+		HashSet<String> seen = new HashSet<String>();
+		String[] words = new String[n];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; ) {
+			sb.setLength(0);
+			int len = 2 + r.nextInt(10);
+			for (int k = 0; k < len; k++) {
+				// skewed, so that words share prefixes as in natural language
+				sb.append((char)('a' + (int)(25 * Math.pow(r.nextDouble(), 2))));
+			}
+			sb.append('z');
+			if (seen.add(sb.toString())) {
+				words[i++] = sb.toString();
+			}
+		}
+		return words;
+	}
+	
+	/**
+	 * Makes words from random stems with common suffixes, as in natural language. Each 
+	 * stem gets a random selection of the suffixes, and every word ends with 'z', so 
+	 * that none is a prefix of another.
+	 */
+	static String[] morphWords(int n, long seed) {
+		String[] suffixes = { "", "s", "ed", "er", "ers", "ing", "ings", "ly", "ness", "tion", "tions", "able" };
+		Random r = new Random(seed);
+		HashSet<String> seen = new HashSet<String>();
+		String[] words = new String[n];
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < n; ) {
+			sb.setLength(0);
+			int len = 3 + r.nextInt(6);
+			for (int k = 0; k < len; k++) {
+				sb.append((char)('a' + (int)(25 * Math.pow(r.nextDouble(), 2))));
+			}
+			String stem = sb.toString();
+			for (int j = 0; j < suffixes.length && i < n; j++) {
+				if (j == 0 || r.nextInt(3) > 0) {
+					String word = stem + suffixes[j] + 'z';
+					if (seen.add(word)) {
+						words[i++] = word;
+					}
+				}
+			}
+		}
+		return words;
+	}
+}
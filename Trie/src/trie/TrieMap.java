@@ -0,0 +1,341 @@
+package trie;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * This class is a map from strings to values, kept in a compressed trie. As in
+ * Trie, a node does not hold its substring, but refers to it with a key and start and
+ * end indexes: here the key is one of the keys that go through the node. Unlike Trie,
+ * any node may hold a value, so a key may be a prefix of another key.
+ * 
+ * Children are kept in arrays sorted by first character, so that a child is found 
+ * with binary search, and iteration is in lexicographic order of keys. Looking up a 
+ * key compares its characters in place, in O(key length) time (times the log of the 
+ * number of children at each level) and without allocating anything.
+ * 
+ * Null keys are not allowed; null values are.
+ * 
+ * @author Sesh Venugopal
+ *
+ * @param <V> Type of values
+ */
+public class TrieMap<V> extends AbstractMap<String, V> {
+
+	/**
+	 * A node: its substring is key.substring(start, end+1), and start is also the 
+	 * number of characters on the path above the node
+	 */
+	private static class Node<V> {
+		String key;
+		int start, end;
+		boolean hasValue;
+		V value;
+		char[] firsts;     // first character of each child, ascending
+		Node<V>[] children;
+		int count;
+		
+		Node(String key, int start, int end) {
+			this.key = key;
+			this.start = start;
+			this.end = end;
+		}
+		
+		int find(char c) {
+			return firsts == null ? -1 : Arrays.binarySearch(firsts, 0, count, c);
+		}
+		
+		@SuppressWarnings("unchecked")
+		void insert(int i, char c, Node<V> child) {
+			if (firsts == null) {
+				firsts = new char[2];
+				children = (Node<V>[])new Node<?>[2];
+			} else if (count == firsts.length) {
+				firsts = Arrays.copyOf(firsts, count * 2);
+				children = Arrays.copyOf(children, count * 2);
+			}
+			System.arraycopy(firsts, i, firsts, i + 1, count - i);
+			System.arraycopy(children, i, children, i + 1, count - i);
+			firsts[i] = c;
+			children[i] = child;
+			count++;
+		}
+		
+		void delete(int i) {
+			System.arraycopy(firsts, i + 1, firsts, i, count - i - 1);
+			System.arraycopy(children, i + 1, children, i, count - i - 1);
+			count--;
+			children[count] = null;
+			if (count == 0) {
+				firsts = null;
+				children = null;
+			}
+		}
+	}
+	
+	private Node<V> root;
+	private int size;
+	
+	/**
+	 * Number of structural changes, so that iterators can detect them
+	 */
+	private int modCount;
+	
+	/**
+	 * Initializes an empty map.
+	 */
+	public TrieMap() {
+		root = new Node<V>("", 0, -1);
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractMap#get(java.lang.Object)
+	 */
+	public V get(Object key) {
+		Node<V> node = node(key);
+		return node == null ? null : node.value;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractMap#containsKey(java.lang.Object)
+	 */
+	public boolean containsKey(Object key) {
+		return node(key) != null;
+	}
+	
+	/**
+	 * Returns the node that holds the value for a key.
+	 * 
+	 * @return Node, or null if the key is not in the map
+	 */
+	private Node<V> node(Object o) {
+		if (!(o instanceof String)) {
+			return null;
+		}
+		String key = (String)o;
+		Node<V> node = root;
+		int i = 0;
+		while (i < key.length()) {
+			int c = node.find(key.charAt(i));
+			if (c < 0) {
+				return null;
+			}
+			node = node.children[c];
+			if (node.end >= key.length() || !key.regionMatches(i, node.key, i, node.end - i + 1)) {
+				return null;
+			}
+			i = node.end + 1;
+		}
+		return node.hasValue ? node : null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+	 */
+	public V put(String key, V value) {
+		Node<V> node = root;
+		int i = 0;
+		while (i < key.length()) {
+			char ch = key.charAt(i);
+			int c = node.find(ch);
+			if (c < 0) {  // new leaf
+				Node<V> leaf = new Node<V>(key, i, key.length() - 1);
+				leaf.hasValue = true;
+				leaf.value = value;
+				node.insert(-(c + 1), ch, leaf);
+				size++;
+				modCount++;
+				return null;
+			}
+			Node<V> child = node.children[c];
+			int k = i + 1;
+			while (k <= child.end && k < key.length() && key.charAt(k) == child.key.charAt(k)) {
+				k++;
+			}
+			if (k <= child.end) {  // only part of the substring matched, split the child
+				Node<V> mid = new Node<V>(child.key, child.start, k - 1);
+				child.start = k;
+				mid.insert(0, child.key.charAt(k), child);
+				node.children[c] = mid;
+				child = mid;
+			}
+			node = child;
+			i = k;
+		}
+		V old = node.value;
+		if (!node.hasValue) {
+			node.hasValue = true;
+			node.key = key;  // a node with a value holds its own key, for iteration
+			size++;
+			modCount++;
+		}
+		node.value = value;
+		return old;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractMap#remove(java.lang.Object)
+	 */
+	public V remove(Object o) {
+		if (!(o instanceof String)) {
+			return null;
+		}
+		String key = (String)o;
+		Node<V> parent = null;
+		int index = -1;
+		Node<V> node = root;
+		int i = 0;
+		while (i < key.length()) {
+			int c = node.find(key.charAt(i));
+			if (c < 0) {
+				return null;
+			}
+			Node<V> child = node.children[c];
+			if (child.end >= key.length() || !key.regionMatches(i, child.key, i, child.end - i + 1)) {
+				return null;
+			}
+			parent = node;
+			index = c;
+			node = child;
+			i = node.end + 1;
+		}
+		if (!node.hasValue) {
+			return null;
+		}
+		V old = node.value;
+		node.hasValue = false;
+		node.value = null;
+		size--;
+		modCount++;
+		
+		if (node == root) {
+			return old;
+		}
+		if (node.count == 0) {
+			parent.delete(index);
+			if (parent != root && !parent.hasValue && parent.count == 1) {
+				// parent is left with one child and no value: merge it into the child
+				mergeIntoChild(parent);
+			}
+		} else if (node.count == 1) {
+			mergeIntoChild(node);
+		}
+		return old;
+	}
+	
+	/**
+	 * Merges a node that has no value and a single child into the child, in place: 
+	 * the node takes over the child's key, value and children, and its own substring
+	 * is extended to the end of the child's.
+	 */
+	private static <V> void mergeIntoChild(Node<V> node) {
+		Node<V> child = node.children[0];
+		node.key = child.key;
+		node.end = child.end;
+		node.hasValue = child.hasValue;
+		node.value = child.value;
+		node.firsts = child.firsts;
+		node.children = child.children;
+		node.count = child.count;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractMap#size()
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.AbstractMap#clear()
+	 */
+	public void clear() {
+		root = new Node<V>("", 0, -1);
+		size = 0;
+		modCount++;
+	}
+	
+	/**
+	 * Returns the entries in lexicographic order of keys. Entries are read-only 
+	 * snapshots; the iterator does not support remove.
+	 * 
+	 * @see java.util.AbstractMap#entrySet()
+	 */
+	public Set<Map.Entry<String, V>> entrySet() {
+		return new AbstractSet<Map.Entry<String, V>>() {
+			public Iterator<Map.Entry<String, V>> iterator() {
+				return new EntryIterator();
+			}
+			public int size() {
+				return size;
+			}
+		};
+	}
+	
+	/**
+	 * Iterates in order: a node's own entry comes before its children's, since its key
+	 * is a prefix of theirs, and children come in order of first character.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<String, V>> {
+		
+		@SuppressWarnings("unchecked")
+		private Node<V>[] nodes = (Node<V>[])new Node<?>[16];
+		private int[] nextChild = new int[16];
+		private int top;
+		private Node<V> next;
+		private int expectedModCount = modCount;
+		
+		EntryIterator() {
+			nodes[top++] = root;
+			next = root.hasValue ? root : advance();
+		}
+		
+		public boolean hasNext() {
+			return next != null;
+		}
+		
+		public Map.Entry<String, V> next() {
+			if (next == null) {
+				throw new NoSuchElementException("no more entries");
+			}
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			Node<V> node = next;
+			next = advance();
+			return new AbstractMap.SimpleImmutableEntry<String, V>(node.key, node.value);
+		}
+		
+		/**
+		 * Finds the next node with a value, depth first.
+		 */
+		private Node<V> advance() {
+			while (top > 0) {
+				Node<V> node = nodes[top-1];
+				int c = nextChild[top-1];
+				if (c == node.count) {
+					top--;
+					continue;
+				}
+				nextChild[top-1]++;
+				Node<V> child = node.children[c];
+				if (top == nodes.length) {
+					nodes = Arrays.copyOf(nodes, top * 2);
+					nextChild = Arrays.copyOf(nextChild, top * 2);
+				}
+				nodes[top] = child;
+				nextChild[top++] = 0;
+				if (child.hasValue) {
+					return child;
+				}
+			}
+			return null;
+		}
+	}
+}
@@ -98,6 +98,20 @@ public class TrieNode {
 	 */
 	TrieNode sibling;
 	
+	/**
+	 * Index of children by first character, for nodes with many children (null for 
+	 * nodes with few children, which are found by walking the sibling list)
+	 */
+	ChildIndex children;
+	
+	/**
+	 * Weight of the word, at a leaf; at any other node, the maximum weight of the
+	 * words in its subtree (or more, after a weight has been lowered or a word deleted).
+	 * Integer.MIN_VALUE until weights are assigned, so that a leaf inserted into a
+	 * weighted trie never weighs more than the nodes above it
+	 */
+	int maxWeight = Integer.MIN_VALUE;
+	
 	/**
 	 * Initializes this trie node with substring, first child, and sibling
 	 * 
@@ -0,0 +1,117 @@
+package trie;
+
+/**
+ * This class is a growable store of words for a trie that changes after it is built,
+ * in place of a fixed array of all words. A word is identified by its index in the
+ * store, which is what trie nodes hold in their Indexes. The index of a removed word
+ * is reused for a word added later, so the store does not grow with deletes.
+ * 
+ * @author Sesh Venugopal
+ *
+ */
+public class WordStore {
+
+	/**
+	 * Words, by index; null for unused indexes
+	 */
+	private String[] words;
+	
+	/**
+	 * Number of indexes in use or free, i.e. one past the highest index ever used
+	 */
+	private int length;
+	
+	/**
+	 * Removed indexes, available for reuse
+	 */
+	private int[] free = new int[16];
+	private int freeCount;
+	
+	/**
+	 * Initializes an empty store.
+	 */
+	public WordStore() {
+		words = new String[16];
+	}
+	
+	/**
+	 * Initializes with all words in an array, at the same indexes, so that a trie built 
+	 * from the array can be changed with this store.
+	 * 
+	 * @param allWords Words, as passed to Trie.buildTrie
+	 */
+	public WordStore(String[] allWords) {
+		words = new String[Math.max(16, allWords.length)];
+		System.arraycopy(allWords, 0, words, 0, allWords.length);
+		length = allWords.length;
+	}
+	
+	/**
+	 * Returns the word at an index.
+	 * 
+	 * @param index Index of word
+	 * @return Word, or null if the index is not in use
+	 */
+	public String get(int index) {
+		return index < length ? words[index] : null;
+	}
+	
+	/**
+	 * Adds a word.
+	 * 
+	 * @param word Word to be added
+	 * @return Index of word
+	 */
+	public int add(String word) {
+		int index;
+		if (freeCount > 0) {
+			index = free[--freeCount];
+		} else {
+			if (length == words.length) {
+				String[] bigger = new String[words.length * 2];
+				System.arraycopy(words, 0, bigger, 0, length);
+				words = bigger;
+			}
+			index = length++;
+		}
+		words[index] = word;
+		return index;
+	}
+	
+	/**
+	 * Removes the word at an index. The index may be reused by a later add.
+	 * 
+	 * @param index Index of word
+	 */
+	public void remove(int index) {
+		if (index >= length || words[index] == null) {
+			return;
+		}
+		words[index] = null;
+		if (freeCount == free.length) {
+			int[] bigger = new int[free.length * 2];
+			System.arraycopy(free, 0, bigger, 0, freeCount);
+			free = bigger;
+		}
+		free[freeCount++] = index;
+	}
+	
+	/**
+	 * Returns the number of words in the store.
+	 * 
+	 * @return Number of words
+	 */
+	public int size() {
+		return length - freeCount;
+	}
+	
+	/**
+	 * Returns the array backing the store, to be passed as allWords to Trie methods. 
+	 * The array is replaced when the store grows, so it must be fetched again after an add.
+	 * 
+	 * @return Array of words, by index (with nulls at unused indexes)
+	 */
+	public String[] array() {
+		return words;
+	}
+}